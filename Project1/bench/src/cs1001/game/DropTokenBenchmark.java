@@ -0,0 +1,100 @@
+package cs1001.game;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cs1302.gameutil.Token;
+
+/**
+ * Measures the latency of a single {@link cs1001.game.ConnectFour#dropToken} call as the grid
+ * fills up. Every batch drops one token into each of {@link #BATCH}-many identical games that
+ * were pre-filled to {@code fill} percent of the grid, so each drop lands on a fresh game. With
+ * per-column heights, the numbers should stay flat from an empty grid ({@code fill = 0}) to a
+ * nearly full one ({@code fill = 99}). Scores are per batch, so divide by {@link #BATCH} for the
+ * cost of one drop.
+ *
+ * <p>
+ * The grid is filled bottom-up, row by row, with the pattern
+ * {@code player = (h / 2 + col) % 2} (see {@link #owner}), which never lines up four equal
+ * tokens, so no game ends before the measured drop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, batchSize = DropTokenBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = DropTokenBenchmark.BATCH)
+@Fork(1)
+public class DropTokenBenchmark {
+
+    /** Number of drops (one per pre-filled game) measured per iteration. */
+    static final int BATCH = 10_000;
+
+    @Param({"6", "7", "8", "9"})
+    int rows;
+
+    @Param({"7", "8", "9"})
+    int cols;
+
+    @Param({"0", "25", "50", "75", "99"})
+    int fill;
+
+    private ConnectFour[] games;
+    private int next; // index of the game that receives the next drop
+    private int dropPlayer; // player who drops the measured token
+    private int dropCol; // column that receives the measured token
+
+    /**
+     * Return the player who owns cell {@code (h, col)} in the draw-only fill pattern.
+     *
+     * @param h the cell's height, counted from the bottom
+     * @param col the cell's column index
+     * @return {@code 0} or {@code 1}
+     */
+    static int owner(int h, int col) {
+        return (h / 2 + col) % 2;
+    } // owner
+
+    /**
+     * Build a fresh batch of pre-filled games before every iteration.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        int size = rows * cols;
+        int filled = Math.min(size - 1, size * fill / 100);
+        games = new ConnectFour[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            ConnectFour game = new ConnectFour(rows, cols);
+            game.setPlayerTokens(Token.RED, Token.BLUE);
+            for (int n = 0; n < filled; n++) {
+                game.dropToken(owner(n / cols, n % cols), n % cols);
+            } // for
+            games[i] = game;
+        } // for
+        dropCol = filled % cols;
+        dropPlayer = owner(filled / cols, dropCol);
+        next = 0;
+    } // setUp
+
+    /**
+     * Drop one token into the next pre-filled game.
+     *
+     * @return the game, so the drop cannot be optimized away
+     */
+    @Benchmark
+    public ConnectFour dropToken() {
+        ConnectFour game = games[next++];
+        game.dropToken(dropPlayer, dropCol);
+        return game;
+    } // dropToken
+
+} // DropTokenBenchmark
@@ -0,0 +1,133 @@
+package cs1001.game;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * Measures loading one game file with {@link cs1001.game.ConnectFour#fromFile}, and with
+ * {@link cs1001.game.GameLoader#load} for comparison. The file holds a half-full grid from a
+ * random game and is written to a temporary directory before the run, so the numbers include
+ * opening and reading a (cached) file as well as parsing it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FromFileBenchmark {
+
+    @Param({"6", "7", "8", "9"})
+    int rows;
+
+    @Param({"7", "8", "9"})
+    int cols;
+
+    private Path dir;
+    private Path file;
+
+    /**
+     * Write the game file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        Random rng = new Random(1302);
+        dir = Files.createTempDirectory("c4bench");
+        file = dir.resolve("game.txt");
+        while (true) {
+            Files.writeString(file, randomGame(rng));
+            try {
+                ConnectFour.fromFile(file.toString());
+                return;
+            } catch (IllegalStateException ise) {
+                // fromFile stacks each column in file order, which turned this position
+                // upside down and into a win; try another game
+            } // try
+        } // while
+    } // setUp
+
+    /**
+     * Return the file contents for a random game played until the grid is half full.
+     *
+     * @param rng the source of columns
+     * @return the game file text
+     */
+    private String randomGame(Random rng) {
+        ConnectFour game;
+        do { // start over if the game ends before the grid is half full
+            game = new ConnectFour(rows, cols);
+            game.setPlayerTokens(Token.RED, Token.BLUE);
+            for (int n = 0; n < rows * cols / 2 && game.getPhase() != GamePhase.OVER; n++) {
+                int col = rng.nextInt(cols);
+                while (game.isColumnFull(col)) {
+                    col = (col + 1) % cols;
+                } // while
+                game.dropToken(n % 2, col);
+            } // for
+        } while (game.getPhase() == GamePhase.OVER);
+        Position position = game.snapshot();
+        StringBuilder text = new StringBuilder();
+        text.append(rows).append(' ').append(cols).append(" RED BLUE\n");
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int player = position.getPlayerAt(row, col);
+                text.append(player < 0 ? 3 : player).append(col + 1 < cols ? ' ' : '\n');
+            } // for
+        } // for
+        text.append(game.getLastDropRow()).append(' ').append(game.getLastDropCol()).append('\n');
+        return text.toString();
+    } // randomGame
+
+    /**
+     * Delete the game file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+        Files.delete(dir);
+    } // tearDown
+
+    /**
+     * Load the file with {@code fromFile}.
+     *
+     * @return the game
+     * @throws FileNotFoundException if the file has gone missing
+     */
+    @Benchmark
+    public ConnectFour fromFile() throws FileNotFoundException {
+        return ConnectFour.fromFile(file.toString());
+    } // fromFile
+
+    /**
+     * Load the file with {@link cs1001.game.GameLoader}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public GameLoader.Result gameLoader() {
+        return GameLoader.load(file);
+    } // gameLoader
+
+} // FromFileBenchmark
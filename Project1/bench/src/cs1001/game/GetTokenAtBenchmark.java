@@ -0,0 +1,74 @@
+package cs1001.game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * Measures {@link cs1001.game.ConnectFour#getTokenAt} by reading every cell of a half-full
+ * grid, as a renderer or an analysis pass would. Scores are per full scan, so divide by
+ * {@code rows * cols} for the cost of one call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GetTokenAtBenchmark {
+
+    @Param({"6", "7", "8", "9"})
+    int rows;
+
+    @Param({"7", "8", "9"})
+    int cols;
+
+    private ConnectFour game;
+
+    /**
+     * Play a random game until about half the grid is filled, or it ends.
+     */
+    @Setup
+    public void setUp() {
+        Random rng = new Random(1302);
+        game = new ConnectFour(rows, cols);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        for (int n = 0; n < rows * cols / 2 && game.getPhase() != GamePhase.OVER; n++) {
+            int col = rng.nextInt(cols);
+            while (game.isColumnFull(col)) {
+                col = (col + 1) % cols;
+            } // while
+            game.dropToken(n % 2, col);
+        } // for
+    } // setUp
+
+    /**
+     * Read every cell of the grid.
+     *
+     * @return a checksum of the tokens read, so the calls cannot be optimized away
+     */
+    @Benchmark
+    public int scanGrid() {
+        int sum = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Token token = game.getTokenAt(row, col);
+                sum += token == null ? 0 : token.ordinal() + 1;
+            } // for
+        } // for
+        return sum;
+    } // scanGrid
+
+} // GetTokenAtBenchmark
@@ -0,0 +1,73 @@
+package cs1001.game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * Measures complete random games through the public API: a new
+ * {@link cs1001.game.ConnectFour}, then random drops into non-full columns until
+ * {@link cs1001.game.ConnectFour#getPhase} says the game is over. This covers construction,
+ * {@code isColumnFull}, {@code dropToken} and its win check together, the mix a Monte Carlo
+ * player or a tournament runs. The random stream is seeded, so every run plays the same games.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PlayoutBenchmark {
+
+    @Param({"6", "7", "8", "9"})
+    int rows;
+
+    @Param({"7", "8", "9"})
+    int cols;
+
+    private SplittableRandom random;
+
+    /**
+     * Seed the column choices.
+     */
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(1302);
+    } // setUp
+
+    /**
+     * Play one random game to the end.
+     *
+     * @return the number of tokens dropped, so the game cannot be optimized away
+     */
+    @Benchmark
+    public int playout() {
+        ConnectFour game = new ConnectFour(rows, cols);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        int player = 0;
+        int dropped = 0;
+        while (game.getPhase() != GamePhase.OVER) {
+            int col = random.nextInt(cols);
+            while (game.isColumnFull(col)) {
+                col = (col + 1) % cols;
+            } // while
+            game.dropToken(player, col);
+            player = 1 - player;
+            dropped++;
+        } // while
+        return dropped;
+    } // playout
+
+} // PlayoutBenchmark
@@ -0,0 +1,82 @@
+package cs1001.game;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * Measures {@link cs1001.game.ConnectFour#isLastDropConnectFour} on a fixed set of positions
+ * taken from random games, about half of them ending in a win. Run it with the GC profiler to
+ * check that the win check does not allocate; {@code gc.alloc.rate.norm} should read
+ * {@code 0 B/op}:
+ *
+ * <pre>
+ * $ java -jar target/benchmarks.jar WinCheckBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WinCheckBenchmark {
+
+    /** Number of positions cycled through; a power of two so the index can be masked. */
+    private static final int POSITIONS = 1024;
+
+    @Param({"6", "7", "8", "9"})
+    int rows;
+
+    @Param({"7", "8", "9"})
+    int cols;
+
+    private ConnectFour[] games;
+    private int next; // index of the next position to check
+
+    /**
+     * Play random games and keep a snapshot of each one at a random point, or at its end.
+     */
+    @Setup
+    public void setUp() {
+        Random rng = new Random(1302);
+        games = new ConnectFour[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            ConnectFour game = new ConnectFour(rows, cols);
+            game.setPlayerTokens(Token.RED, Token.BLUE);
+            int stopAt = rng.nextBoolean() ? rows * cols : 4 + rng.nextInt(rows * cols - 4);
+            for (int n = 0; n < stopAt && game.getPhase() != GamePhase.OVER; n++) {
+                int col = rng.nextInt(cols);
+                while (game.isColumnFull(col)) {
+                    col = (col + 1) % cols;
+                } // while
+                game.dropToken(n % 2, col);
+            } // for
+            games[i] = game;
+        } // for
+    } // setUp
+
+    /**
+     * Check the next position for a win through its last drop.
+     *
+     * @return whether the last drop created a connect four
+     */
+    @Benchmark
+    public boolean isLastDropConnectFour() {
+        ConnectFour game = games[next++ & (POSITIONS - 1)];
+        return game.isLastDropConnectFour();
+    } // isLastDropConnectFour
+
+} // WinCheckBenchmark
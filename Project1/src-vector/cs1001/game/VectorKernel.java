@@ -0,0 +1,88 @@
+package cs1001.game;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link cs1001.game.BatchBoards} kernel on the incubating Vector API: it drops and checks
+ * for connect fours in as many games at once as the CPU's widest vector register holds
+ * {@code long}s (e.g., four with AVX2, eight with AVX-512). The arithmetic is exactly that of
+ * the scalar kernel, lane by lane; games left over at the end of the arrays go to the scalar
+ * kernel.
+ *
+ * <p>
+ * This class lives in its own source root because it needs the {@code jdk.incubator.vector}
+ * module, at compile time and at run time. It is compiled only by the {@code vector} Maven
+ * profile, and {@code BatchBoards} loads it reflectively, so the rest of the engine builds and
+ * runs without it.
+ */
+final class VectorKernel extends BatchBoards.Kernel {
+
+    /** The widest vector shape the CPU supports. */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Constructs the kernel for {@code rows}-by-{@code cols} grids.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     */
+    VectorKernel(int rows, int cols) {
+        super(rows, cols);
+    } // VectorKernel
+
+    @Override
+    void step(int[] moves, long[] curLo, long[] curHi, long[] allLo, long[] allHi,
+            long[] fours, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            LongVector lo = LongVector.fromArray(SPECIES, allLo, i);
+            LongVector hi = LongVector.fromArray(SPECIES, allHi, i);
+            LongVector bottomLo = LongVector.fromArray(SPECIES, this.bottomLo, 0, moves, i);
+            LongVector bottomHi = LongVector.fromArray(SPECIES, this.bottomHi, 0, moves, i);
+            LongVector sumLo = lo.add(bottomLo);
+            LongVector carry = lo.and(bottomLo).or(lo.or(bottomLo).and(sumLo.not()))
+                    .lanewise(VectorOperators.LSHR, 63); // a column may span both words
+            LongVector moveLo = sumLo.and(
+                    LongVector.fromArray(SPECIES, this.columnLo, 0, moves, i));
+            LongVector moveHi = hi.add(bottomHi).add(carry).and(
+                    LongVector.fromArray(SPECIES, this.columnHi, 0, moves, i));
+            LongVector moverLo = LongVector.fromArray(SPECIES, curLo, i).or(moveLo);
+            LongVector moverHi = LongVector.fromArray(SPECIES, curHi, i).or(moveHi);
+            LongVector newLo = lo.or(moveLo);
+            LongVector newHi = hi.or(moveHi);
+            newLo.intoArray(allLo, i);
+            newHi.intoArray(allHi, i);
+            moverLo.lanewise(VectorOperators.XOR, newLo).intoArray(curLo, i);
+            moverHi.lanewise(VectorOperators.XOR, newHi).intoArray(curHi, i);
+            aligned(moverLo, moverHi, 1) // vertical
+                    .or(aligned(moverLo, moverHi, this.stride)) // horizontal
+                    .or(aligned(moverLo, moverHi, this.stride - 1)) // anti-diagonal
+                    .or(aligned(moverLo, moverHi, this.stride + 1)) // diagonal
+                    .intoArray(fours, i);
+        } // for
+        super.step(moves, curLo, curHi, allLo, allHi, fours, i, to);
+    } // step
+
+    /**
+     * Return, lane by lane, a non-zero value where four bits of the two-word mask
+     * {@code (l, h)} are aligned in the direction of shift {@code s}, as in
+     * {@link cs1001.game.BitBoard#hasFour}.
+     *
+     * @param l the masks' low words
+     * @param h the masks' high words
+     * @param s the shift distance for one step in the checked direction ({@code 0 < s < 32})
+     * @return non-zero lanes where four bits are aligned
+     */
+    private static LongVector aligned(LongVector l, LongVector h, int s) {
+        LongVector ml = l.and(l.lanewise(VectorOperators.LSHR, s)
+                .or(h.lanewise(VectorOperators.LSHL, 64 - s)));
+        LongVector mh = h.and(h.lanewise(VectorOperators.LSHR, s));
+        int s2 = s << 1;
+        return ml.and(ml.lanewise(VectorOperators.LSHR, s2)
+                .or(mh.lanewise(VectorOperators.LSHL, 64 - s2)))
+                .or(mh.and(mh.lanewise(VectorOperators.LSHR, s2)));
+    } // aligned
+
+} // VectorKernel
@@ -0,0 +1,424 @@
+package cs1001.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A depth-limited alpha-beta player for {@link cs1001.game.ConnectFour} that answers within a
+ * hard wall-clock budget. It searches to depth 1, then 2, then 3 and so on (iterative
+ * deepening), rating the positions at the depth limit with the game's incremental
+ * {@link cs1001.game.Evaluation}. When the deadline passes, the search in progress is dropped
+ * and the best column of the last depth that finished is played, so a reply is always ready and
+ * never late by more than one look at the clock ({@link #CLOCK_INTERVAL} nodes).
+ *
+ * <p>
+ * Each depth reuses the move ordering of the ones before it: the best column of every
+ * position is kept in a {@link cs1001.game.TranspositionTable} and tried first next time, and
+ * the root's columns are tried in the order of their scores at the last depth. This makes the
+ * early depths almost free, so the search goes as deep as the budget allows: deep on small
+ * grids, and still a few plies with a sound move on open 9x9 grids. Once the search reaches
+ * the end of the game, or finds a forced win or loss, it stops early.
+ *
+ * <p>
+ * The table is kept from one move to the next, so a player's later moves start from the work
+ * of its earlier ones. An {@code AnytimeSearch} is meant for one game (or one grid size) at a
+ * time, and one thread at a time; its table is cleared when the grid size changes.
+ *
+ * <p>
+ * Since the depth reached depends on the machine and its load, and the table on the moves
+ * searched before, the column chosen for a position can differ from run to run. A player made
+ * by {@link #withDepth} instead searches every move to the same depth, with no deadline and a
+ * table cleared before each move, so its choice depends only on the position.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * AnytimeSearch ai = AnytimeSearch.withTimeBudget(50);
+ * game.dropToken(player, ai.chooseColumn(game).bestCol());
+ * </pre>
+ */
+public class AnytimeSearch {
+
+    /**
+     * Score of a win for the player to move when no token is on the grid. A win whose winning
+     * token is dropped when {@code n} tokens are already on the grid scores {@code WIN - n}, so
+     * faster wins score higher; a loss scores the negative of the opponent's win.
+     */
+    public static final int WIN = 30_000;
+
+    /** Largest heuristic score; keeps every heuristic score below every win. */
+    static final int MAX_EVAL = 20_000;
+
+    /** Number of nodes between two looks at the clock (a power of two). */
+    static final int CLOCK_INTERVAL = 256;
+
+    /** Memory budget of the transposition table. */
+    static final long TABLE_BYTES = 4L << 20;
+
+    private final long nanos; // time budget per move, or 0 for none
+    private final int maxDepth; // deepest depth to search
+    private final TranspositionTable table; // kept across moves
+    private int rows; // grid size of the last search
+    private int cols;
+
+    private BitBoard board; // position being searched, in place
+    private Evaluation eval; // heuristic score of board, kept in step with it
+    private int[] order; // center-first column order
+    private long deadline; // System.nanoTime() value at which to stop
+    private boolean timed; // whether the deadline applies to this move
+    private boolean abortable; // whether the current depth may be cut short
+    private boolean stopped; // whether the deadline has passed
+    private long nodes; // positions visited by this move's search
+    private long cutoffs; // beta cutoffs, counted only when EngineMetrics is enabled
+
+    /**
+     * Constructs a player with a budget of {@code millis} milliseconds and {@code maxDepth}
+     * plies per move.
+     *
+     * @param millis the time budget in milliseconds, or {@code 0} for none
+     * @param maxDepth the depth limit in plies
+     */
+    private AnytimeSearch(long millis, int maxDepth) {
+        this.nanos = millis * 1_000_000;
+        this.maxDepth = maxDepth;
+        this.table = new TranspositionTable(TABLE_BYTES);
+    } // AnytimeSearch
+
+    /**
+     * Return a player that searches for at most {@code millis} milliseconds per move.
+     *
+     * @param millis the time per move, in milliseconds
+     * @return the player
+     * @throws IllegalArgumentException if {@code millis < 1}
+     */
+    public static AnytimeSearch withTimeBudget(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: The time budget must be positive.");
+        } // if
+        return new AnytimeSearch(millis, Integer.MAX_VALUE);
+    } // withTimeBudget
+
+    /**
+     * Return a player that searches every move to {@code depth} plies (or to the end of the
+     * game, if that is closer), however long it takes. Its table is cleared before each move,
+     * so the same position always gets the same column, on any machine.
+     *
+     * @param depth the depth per move, in plies
+     * @return the player
+     * @throws IllegalArgumentException if {@code depth < 1}
+     */
+    public static AnytimeSearch withDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Bad argument: The depth must be positive.");
+        } // if
+        return new AnytimeSearch(0, depth);
+    } // withDepth
+
+    /**
+     * The outcome of a search.
+     *
+     * @param bestCol the best column found at the deepest finished depth
+     * @param score the score of {@code bestCol} for the player to move: heuristic, unless
+     *              {@code solved}
+     * @param depth the deepest finished depth, in plies
+     * @param solved {@code true} if the score is exact: the search saw the end of every line,
+     *               or found a forced win or loss (see {@link #WIN})
+     * @param nodes the number of positions searched, including those of an unfinished depth
+     * @param nanos the wall-clock time the search took, in nanoseconds
+     */
+    public record Result(int bestCol, int score, int depth, boolean solved, long nodes,
+            long nanos) {
+
+        /**
+         * Return the search speed.
+         *
+         * @return positions searched per second
+         */
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        } // nodesPerSecond
+
+    } // Result
+
+    /**
+     * Choose a column for the player expected to drop next in {@code game}, i.e., the opponent
+     * of whoever made the last drop (the first player if no token has been dropped yet), within
+     * this player's time budget or depth. The game itself is not modified.
+     *
+     * @param game the game to play in
+     * @return the chosen column, with search statistics
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public Result chooseColumn(ConnectFour game) {
+        return choose(game, System.nanoTime() + this.nanos, this.nanos > 0);
+    } // chooseColumn
+
+    /**
+     * Choose a column like {@link #chooseColumn(ConnectFour)}, but stop at {@code deadline}, a
+     * {@link System#nanoTime()} value, instead of after this player's time budget. Use it to
+     * take time already spent elsewhere (e.g., on the network) out of a reply's budget. Depth
+     * 1 is always finished, however close the deadline is.
+     *
+     * @param game the game to play in
+     * @param deadline the {@code System.nanoTime()} value at which to stop
+     * @return the chosen column, with search statistics
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public Result chooseColumn(ConnectFour game, long deadline) {
+        return choose(game, deadline, true);
+    } // chooseColumn
+
+    /**
+     * Choose a column for the player expected to drop next in {@code game}.
+     *
+     * @param game the game to play in
+     * @param deadline the {@code System.nanoTime()} value at which to stop
+     * @param timed whether to stop at {@code deadline}, or only at the depth limit
+     * @return the chosen column, with search statistics
+     */
+    private Result choose(ConnectFour game, long deadline, boolean timed) {
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: There is no column to choose once the game is over.");
+        } // if
+        long start = System.nanoTime();
+        if (game.getRows() != this.rows || game.getCols() != this.cols
+                || this.maxDepth != Integer.MAX_VALUE) { // a fixed depth starts afresh
+            this.table.clear(); // keys of different grid sizes may collide
+            this.rows = game.getRows();
+            this.cols = game.getCols();
+        } // if
+        this.board = game.copyBoard();
+        this.eval = new Evaluation(this.board);
+        this.order = ConnectFourSolver.centerFirst(this.cols);
+        this.deadline = deadline;
+        this.timed = timed;
+        this.stopped = false;
+        this.nodes = 1;
+        this.cutoffs = 0;
+        Result result = iterate(game.nextPlayer(), start);
+        this.board = null;
+        this.eval = null;
+        if (EngineMetrics.ENABLED) {
+            EngineMetrics.searched(result.nodes(), this.cutoffs, 0, result.nanos());
+        } // if
+        return result;
+    } // choose
+
+    /**
+     * Run the iterative deepening loop from the root.
+     *
+     * @param player the player to move
+     * @param start the time the search started
+     * @return the result of the deepest finished depth
+     */
+    private Result iterate(int player, long start) {
+        int moves = this.board.count;
+        int size = this.rows * this.cols;
+        for (int col : this.order) {
+            if (!this.board.isFull(col) && this.board.isWinningDrop(player, col)) {
+                return new Result(col, WIN - moves, 1, true, this.nodes,
+                        System.nanoTime() - start);
+            } // if
+        } // for
+        int[] rootOrder = new int[this.cols];
+        int n = 0;
+        for (int col : this.order) {
+            if (!this.board.isFull(col)) {
+                rootOrder[n++] = col;
+            } // if
+        } // for
+        int[] scores = new int[this.cols];
+        int bestCol = rootOrder[0];
+        int bestScore = 0;
+        int finished = 0;
+        boolean solved = false;
+        int maxDepth = Math.min(size - moves, this.maxDepth);
+        for (int depth = 1; depth <= maxDepth && !solved; depth++) {
+            this.abortable = this.timed && depth > 1;
+            int alpha = -WIN - 1;
+            int iterBest = -1;
+            for (int i = 0; i < n && !this.stopped; i++) {
+                int col = rootOrder[i];
+                int h = this.board.drop(player, col);
+                this.eval.drop(player, h, col);
+                int score = -search(1 - player, -WIN - 1, -alpha, depth - 1);
+                this.board.undo(col);
+                this.eval.undo(player, h, col);
+                scores[col] = score;
+                if (score > alpha) {
+                    alpha = score;
+                    iterBest = col;
+                } // if
+            } // for
+            if (this.stopped) {
+                break; // keep the last finished depth
+            } // if
+            bestCol = iterBest;
+            bestScore = alpha;
+            finished = depth;
+            solved = depth >= size - moves || Math.abs(alpha) > WIN - size - 1;
+            sortByScore(rootOrder, n, scores);
+        } // for
+        return new Result(bestCol, bestScore, finished, solved, this.nodes,
+                System.nanoTime() - start);
+    } // iterate
+
+    /**
+     * Search the board for {@code player} to {@code depth} more plies within
+     * {@code (alpha, beta)}. The board is left as it was found. Once the deadline has passed,
+     * return {@code 0} at once; the caller must then ignore the result.
+     *
+     * @param player the player to move
+     * @param alpha the lower end of the search window
+     * @param beta the upper end of the search window
+     * @param depth the number of plies left before positions are rated heuristically
+     * @return the (bounded) score for {@code player}
+     */
+    private int search(int player, int alpha, int beta, int depth) {
+        if ((++this.nodes & (CLOCK_INTERVAL - 1)) == 0 && this.abortable
+                && System.nanoTime() - this.deadline >= 0) {
+            this.stopped = true;
+        } // if
+        if (this.stopped) {
+            return 0;
+        } // if
+        int moves = this.board.count;
+        if (moves == this.rows * this.cols) {
+            return 0; // grid full: draw
+        } // if
+        for (int col : this.order) {
+            if (!this.board.isFull(col) && this.board.isWinningDrop(player, col)) {
+                return WIN - moves;
+            } // if
+        } // for
+        if (depth == 0) {
+            return Math.max(-MAX_EVAL, Math.min(MAX_EVAL, this.eval.score(player)));
+        } // if
+        // no win on this drop, so the best possible outcome is a win on our next drop
+        int max = WIN - moves - 2;
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) {
+                return beta;
+            } // if
+        } // if
+        long keyLo = TranspositionTable.keyLo(this.board, player);
+        long keyHi = TranspositionTable.keyHi(this.board, player);
+        long entry = this.table.probe(keyLo, keyHi);
+        int alphaOrig = alpha;
+        int firstCol = -1; // best column from an earlier depth or move
+        if (entry != 0) {
+            if (TranspositionTable.depth(entry) >= depth) {
+                int value = TranspositionTable.value(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return value;
+                } else if (bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, value);
+                } else {
+                    beta = Math.min(beta, value);
+                } // if
+                if (alpha >= beta) {
+                    return value;
+                } // if
+            } // if
+            firstCol = TranspositionTable.bestCol(entry);
+        } // if
+        int bestCol = -1;
+        for (int i = -1; i < this.order.length; i++) {
+            int col = i < 0 ? firstCol : this.order[i];
+            if (col < 0 || (i >= 0 && col == firstCol) || this.board.isFull(col)) {
+                continue;
+            } // if
+            int h = this.board.drop(player, col);
+            this.eval.drop(player, h, col);
+            int score = -search(1 - player, -beta, -alpha, depth - 1);
+            this.board.undo(col);
+            this.eval.undo(player, h, col);
+            if (this.stopped) {
+                return 0; // unfinished: store nothing
+            } // if
+            if (score >= beta) { // cutoff: the opponent will avoid this line
+                if (EngineMetrics.ENABLED) {
+                    this.cutoffs++;
+                } // if
+                this.table.store(keyLo, keyHi, depth, TranspositionTable.LOWER, score, col);
+                return score;
+            } // if
+            if (score > alpha) {
+                alpha = score;
+                bestCol = col;
+            } // if
+        } // for
+        int bound = alpha > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        this.table.store(keyLo, keyHi, depth, bound, alpha, bestCol);
+        return alpha;
+    } // search
+
+    /**
+     * Sort the first {@code n} columns of {@code cols} by descending score, keeping the order
+     * of columns with equal scores (insertion sort: there are at most a few dozen).
+     *
+     * @param cols the columns
+     * @param n the number of columns to sort
+     * @param scores the score of each column, indexed by column
+     */
+    private static void sortByScore(int[] cols, int n, int[] scores) {
+        for (int i = 1; i < n; i++) {
+            int col = cols[i];
+            int j = i - 1;
+            while (j >= 0 && scores[cols[j]] < scores[col]) {
+                cols[j + 1] = cols[j];
+                j--;
+            } // while
+            cols[j + 1] = col;
+        } // for
+    } // sortByScore
+
+    /**
+     * Play one self-play game from the command line, printing the result of every move and at
+     * the end the latency of the 99th-percentile and the slowest move.
+     *
+     * <pre>
+     * java cs1001.game.AnytimeSearch [millis [rows cols]]
+     * </pre>
+     *
+     * <p>
+     * The budget defaults to {@code 50} ms and the grid to 9x9.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        int rows = args.length > 2 ? Integer.parseInt(args[1]) : 9;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : 9;
+        AnytimeSearch[] players = {withTimeBudget(millis), withTimeBudget(millis)};
+        ConnectFour game = new ConnectFour(rows, cols);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        List<Long> times = new ArrayList<>();
+        while (game.getPhase() != GamePhase.OVER) {
+            int player = game.nextPlayer();
+            Result result = players[player].chooseColumn(game);
+            System.out.printf("player %d: column %d, score %d, depth %d%s, %d nodes, %.1f ms\n",
+                    player, result.bestCol(), result.score(), result.depth(),
+                    result.solved() ? " (solved)" : "", result.nodes(), result.nanos() / 1e6);
+            times.add(result.nanos());
+            game.dropToken(player, result.bestCol());
+        } // while
+        times.sort(null);
+        System.out.printf("%s after %d moves; p99 %.1f ms, max %.1f ms\n",
+                game.isLastDropConnectFour() ? "win" : "draw", times.size(),
+                times.get((int) Math.ceil(times.size() * 0.99) - 1) / 1e6,
+                times.get(times.size() - 1) / 1e6);
+    } // main
+
+} // AnytimeSearch
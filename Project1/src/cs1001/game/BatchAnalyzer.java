@@ -0,0 +1,276 @@
+package cs1001.game;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solves many {@link cs1001.game.Position positions} at once, for labelling data sets. The
+ * positions are solved on a fixed pool of worker threads, and the results come back as a
+ * {@link java.util.stream.Stream} in the order the solves finish, not the order the positions
+ * were given.
+ *
+ * <p>
+ * Only {@link #IN_FLIGHT_PER_THREAD} positions per thread are taken from the input ahead of
+ * the consumer: the next position is pulled only when a result is taken, so a huge or
+ * generated input stream is never read into memory all at once, and a slow consumer slows the
+ * workers down instead of piling up results. Each worker keeps one
+ * {@link cs1001.game.TranspositionTable} for all the positions it solves, so related
+ * positions share search results; the table is cleared whenever the grid size changes, so the
+ * input may mix grid sizes.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * try (Stream&lt;BatchAnalyzer.Analysis&gt; results = BatchAnalyzer.analyzeAll(positions)) {
+ *     results.forEach(a -&gt; out.println(a.position().canonical() + " " + a.score()));
+ * }
+ * </pre>
+ *
+ * <p>
+ * Closing the stream stops the workers; a stream that is read to the end stops them by
+ * itself. Worker threads are daemon threads, so an abandoned stream never keeps the JVM
+ * alive.
+ */
+public final class BatchAnalyzer {
+
+    /**
+     * Number of positions per thread that may be queued or being solved at once. More than one
+     * keeps a worker busy while the consumer handles the previous result.
+     */
+    static final int IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * No instances: all methods are static.
+     */
+    private BatchAnalyzer() {
+    } // BatchAnalyzer
+
+    /**
+     * The solved value of one position.
+     *
+     * @param position the position
+     * @param bestCol a column that achieves {@code score}
+     * @param score the game-theoretic score for the player to move (see
+     *              {@link cs1001.game.ConnectFourSolver})
+     */
+    public record Analysis(Position position, int bestCol, int score) {
+    } // Analysis
+
+    /**
+     * Solve every position of {@code positions} on all available processors, like
+     * {@link #analyzeAll(Stream, int)}.
+     *
+     * @param positions the positions to solve
+     * @return the results, in completion order
+     * @throws NullPointerException if {@code positions} is {@code null}
+     */
+    public static Stream<Analysis> analyzeAll(Stream<Position> positions) {
+        return analyzeAll(positions, Runtime.getRuntime().availableProcessors());
+    } // analyzeAll
+
+    /**
+     * Solve every position of {@code positions} on {@code threads}-many worker threads and
+     * return the results in the order the solves finish. {@code positions} is read lazily, as
+     * results are taken, and is closed when the returned stream is closed.
+     *
+     * <p>
+     * A {@code null} position or one that is already over makes the returned stream throw
+     * {@link java.lang.NullPointerException} or {@link java.lang.IllegalArgumentException}
+     * when it gets to that position; a solve that fails makes it throw
+     * {@link java.lang.IllegalStateException}.
+     *
+     * @param positions the positions to solve
+     * @param threads the number of worker threads
+     * @return the results, in completion order
+     * @throws NullPointerException if {@code positions} is {@code null}
+     * @throws IllegalArgumentException if {@code threads < 1}
+     */
+    public static Stream<Analysis> analyzeAll(Stream<Position> positions, int threads) {
+        if (positions == null) {
+            throw new NullPointerException("Null argument(s): The positions can't be null.");
+        } // if
+        if (threads < 1) {
+            throw new IllegalArgumentException("Bad argument: At least one thread is needed.");
+        } // if
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "BatchAnalyzer-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Results results = new Results(positions.iterator(), pool, threads * IN_FLIGHT_PER_THREAD);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results,
+                Spliterator.NONNULL), false)
+                .onClose(pool::shutdownNow)
+                .onClose(positions::close);
+    } // analyzeAll
+
+    /**
+     * The iterator behind the stream of {@link #analyzeAll(Stream, int)}. It keeps up to
+     * {@code window} positions submitted to the pool, topping the window up from the source
+     * each time a result is taken. Only the consuming thread calls it.
+     */
+    private static final class Results implements Iterator<Analysis> {
+
+        private final Iterator<Position> source; // positions not yet submitted
+        private final ExecutorService pool; // the worker threads
+        private final CompletionService<Analysis> done; // finished solves, in completion order
+        private final ThreadLocal<TranspositionTable> tables; // one table per worker
+        private final int window; // maximum number of positions in flight
+        private int inFlight; // positions submitted and not yet taken
+
+        /**
+         * Constructs the iterator.
+         *
+         * @param source the positions to solve
+         * @param pool the worker threads
+         * @param window the maximum number of positions in flight
+         */
+        Results(Iterator<Position> source, ExecutorService pool, int window) {
+            this.source = source;
+            this.pool = pool;
+            this.done = new ExecutorCompletionService<>(pool);
+            this.tables = ThreadLocal.withInitial(TranspositionTable::new);
+            this.window = window;
+            this.inFlight = 0;
+        } // Results
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            if (this.inFlight == 0) {
+                this.pool.shutdown(); // all read and taken: let the workers go
+                return false;
+            } // if
+            return true;
+        } // hasNext
+
+        @Override
+        public Analysis next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            } // if
+            try {
+                Analysis analysis = this.done.take().get();
+                this.inFlight--;
+                return analysis;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while analyzing.", ie);
+            } catch (ExecutionException ee) {
+                this.inFlight--;
+                throw new IllegalStateException("An analysis failed.", ee.getCause());
+            } // try
+        } // next
+
+        /**
+         * Submit positions from the source until the window is full or the source is empty.
+         *
+         * @throws NullPointerException if the next position is {@code null}
+         * @throws IllegalArgumentException if the next position is already over
+         */
+        private void fill() {
+            while (this.inFlight < this.window && this.source.hasNext()) {
+                Position position = this.source.next();
+                if (position == null) {
+                    throw new NullPointerException(
+                            "Null argument(s): The positions can't contain null.");
+                } // if
+                if (position.isOver()) {
+                    throw new IllegalArgumentException(
+                            "Bad argument: There is nothing to solve once the game is over.");
+                } // if
+                this.done.submit(() -> analyze(position));
+                this.inFlight++;
+            } // while
+        } // fill
+
+        /**
+         * Solve {@code position} with this worker's transposition table, which is cleared
+         * first if its last position had another grid size. Runs on a worker.
+         *
+         * @param position the position
+         * @return the result
+         */
+        private Analysis analyze(Position position) {
+            TranspositionTable table = this.tables.get();
+            table.useFor(position.getRows(), position.getCols()); // sizes may share keys
+            ConnectFourSolver.Result result = new ConnectFourSolver(position.toBoard(), table)
+                    .solve(position.getNextPlayer());
+            return new Analysis(position, result.bestCol(), result.score());
+        } // analyze
+
+    } // Results
+
+    /**
+     * Return a random position reached by {@code dropped} random drops on an empty grid, none
+     * of which ends the game. Walks that end the game early start over.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param dropped the number of tokens to drop
+     * @param random the source of randomness
+     * @return the position
+     */
+    static Position randomPosition(int rows, int cols, int dropped, SplittableRandom random) {
+        Position empty = new ConnectFour(rows, cols).snapshot();
+        Position position = empty;
+        while (position.getNumDropped() < dropped) {
+            int col = random.nextInt(cols);
+            if (!position.isColumnFull(col)) {
+                position = position.child(col);
+                if (position.isOver()) {
+                    position = empty;
+                } // if
+            } // if
+        } // while
+        return position;
+    } // randomPosition
+
+    /**
+     * Solve random 6x7 positions from the command line and print the throughput and the
+     * outcome counts.
+     *
+     * <pre>
+     * java cs1001.game.BatchAnalyzer [count [dropped [threads [seed]]]]
+     * </pre>
+     *
+     * <p>
+     * Position {@code i} is reached by {@code dropped} (default {@code 20}) random drops seeded
+     * with {@code seed + i}. The count defaults to {@code 1000}, the thread count to the number
+     * of available processors and the seed to {@code 0}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long count = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int dropped = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        Stream<Position> positions = LongStream.range(0, count)
+                .mapToObj(i -> randomPosition(6, 7, dropped, new SplittableRandom(seed + i)));
+        long[] outcomes = new long[3]; // losses, draws and wins for the player to move
+        long start = System.nanoTime();
+        try (Stream<Analysis> results = analyzeAll(positions, threads)) {
+            results.forEach(a -> outcomes[Integer.signum(a.score()) + 1]++);
+        } // try
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d positions in %.3f s (%.0f positions/s) on %d thread(s)\n", count,
+                nanos / 1e9, count * 1e9 / Math.max(nanos, 1), threads);
+        System.out.printf("player to move: %d wins, %d draws, %d losses\n", outcomes[2],
+                outcomes[1], outcomes[0]);
+    } // main
+
+} // BatchAnalyzer
@@ -0,0 +1,627 @@
+package cs1001.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Many {@link cs1001.game.ConnectFour} games of one grid size, stored side by side and played
+ * in lockstep: one call to {@link #drop} makes one drop in every game that is still going. It
+ * is meant for simulation runs (e.g., random playouts) where thousands of games are advanced
+ * together, and is far cheaper per drop than one {@code ConnectFour} object per game.
+ *
+ * <p>
+ * The games are kept as a <em>struct of arrays</em>: element {@code i} of a handful of
+ * {@code long[]} arrays holds the bit masks of game {@code i}, in the layout of
+ * {@link cs1001.game.BitBoard}. Each game keeps the mask of the player to move and the mask of
+ * all tokens; a drop into column {@code c} is then one addition
+ * ({@code (all + bottom[c]) & column[c]} is the cell the token lands in), and a win check is a
+ * few shifts and {@code AND}s of the mover's mask. Column heights are never stored, since a
+ * column's height is in the mask of all tokens. The same arithmetic runs for every game, with
+ * no branches, so a step over all games is one straight loop over the arrays.
+ *
+ * <p>
+ * That loop is run by a kernel. If the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and the vector kernel was compiled in (the
+ * {@code vector} Maven profile, see {@code pom.xml}), the kernel processes as many games per
+ * instruction as the CPU's vector registers hold, using the incubating Vector API. Otherwise,
+ * or with {@code -Dcs1001.game.vector=false}, a scalar kernel does the same work one game at
+ * a time. Both give the same results.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * BatchBoards boards = new BatchBoards(4096, 6, 7);
+ * int[] cols = new int[boards.getGames()];
+ * while (boards.getPlaying() &gt; 0) {
+ *     // choose cols[i] for every game i that is not over
+ *     boards.drop(cols);
+ * }
+ * </pre>
+ */
+public final class BatchBoards {
+
+    /** Name of the vector kernel class, compiled from {@code src-vector} when available. */
+    static final String VECTOR_KERNEL = "cs1001.game.VectorKernel";
+
+    private final int games; // number of games
+    private final int rows; // number of grid rows
+    private final int cols; // number of grid columns
+    private final int stride; // bits per column, including the sentinel bit on top
+    private final long[] curLo; // low word of each game's mask of the player to move
+    private final long[] curHi; // high word of the same
+    private final long[] allLo; // low word of each game's mask of all tokens
+    private final long[] allHi; // high word of the same
+    private final int[] count; // number of tokens in each game
+    private final byte[] winner; // winner of each game, or -1
+    private final int[] moves; // column to drop into per game, or cols for no drop
+    private final long[] fours; // kernel output: non-zero if the game's mover has a four
+    private final Kernel kernel; // runs one step over all games
+    private int playing; // number of games not over
+
+    /**
+     * Constructs {@code games}-many empty {@code rows}-by-{@code cols} games, using the vector
+     * kernel if it is available.
+     *
+     * @param games the number of games
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @throws IllegalArgumentException if {@code games < 1} or the grid size is not supported
+     *                                  by {@code ConnectFour}
+     */
+    public BatchBoards(int games, int rows, int cols) {
+        this(games, rows, cols, !"false".equals(System.getProperty("cs1001.game.vector")));
+    } // BatchBoards
+
+    /**
+     * Constructs {@code games}-many empty {@code rows}-by-{@code cols} games.
+     *
+     * @param games the number of games
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param vector whether to use the vector kernel if it is available
+     * @throws IllegalArgumentException if {@code games < 1} or the grid size is not supported
+     *                                  by {@code ConnectFour}
+     */
+    BatchBoards(int games, int rows, int cols, boolean vector) {
+        if (games < 1) {
+            throw new IllegalArgumentException("Bad argument: At least one game is needed.");
+        } // if
+        new ConnectFour(rows, cols); // validate the size
+        this.games = games;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = rows + 1;
+        this.curLo = new long[games];
+        this.curHi = new long[games];
+        this.allLo = new long[games];
+        this.allHi = new long[games];
+        this.count = new int[games];
+        this.winner = new byte[games];
+        Arrays.fill(this.winner, (byte) -1);
+        this.moves = new int[games];
+        this.fours = new long[games];
+        this.kernel = vector ? vectorKernel(rows, cols) : new Kernel(rows, cols);
+        this.playing = games;
+    } // BatchBoards
+
+    /**
+     * Return a new vector kernel for the grid size, or a scalar one if the vector kernel was
+     * not compiled in or the {@code jdk.incubator.vector} module is not in the JVM.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @return the kernel
+     */
+    private static Kernel vectorKernel(int rows, int cols) {
+        try {
+            return (Kernel) Class.forName(VECTOR_KERNEL)
+                    .getDeclaredConstructor(int.class, int.class).newInstance(rows, cols);
+        } catch (ReflectiveOperationException | LinkageError e) { // not built, or no module
+            return new Kernel(rows, cols);
+        } // try
+    } // vectorKernel
+
+    /**
+     * The loop that makes one drop in every game and checks the mover for a connect four.
+     * This class is the scalar kernel; the vector kernel overrides {@link #step}.
+     */
+    static class Kernel {
+
+        final int stride; // bits per column, including the sentinel bit on top
+        final int empty; // column index that drops nothing (the number of columns)
+        final long[] bottomLo; // low word of each column's bottom cell; 0 for empty
+        final long[] bottomHi; // high word of the same
+        final long[] columnLo; // low word of each column's cells; 0 for empty
+        final long[] columnHi; // high word of the same
+
+        /**
+         * Constructs the kernel for {@code rows}-by-{@code cols} grids.
+         *
+         * @param rows the number of grid rows
+         * @param cols the number of grid columns
+         */
+        Kernel(int rows, int cols) {
+            this.stride = rows + 1;
+            this.empty = cols;
+            this.bottomLo = new long[cols + 1];
+            this.bottomHi = new long[cols + 1];
+            this.columnLo = new long[cols + 1];
+            this.columnHi = new long[cols + 1];
+            for (int col = 0; col < cols; col++) {
+                for (int h = 0; h < rows; h++) {
+                    int bit = col * this.stride + h;
+                    if (bit < 64) {
+                        this.columnLo[col] |= 1L << bit;
+                        this.bottomLo[col] |= h == 0 ? 1L << bit : 0;
+                    } else {
+                        this.columnHi[col] |= 1L << bit;
+                        this.bottomHi[col] |= h == 0 ? 1L << bit : 0;
+                    } // if
+                } // for
+            } // for
+        } // Kernel
+
+        /**
+         * For games {@code from} (inclusive) to {@code to} (exclusive), drop the mover's token
+         * into column {@code moves[i]} (a column that is not full, or {@link #empty}), set
+         * {@code fours[i]} to a non-zero value if and only if the mover now has a connect
+         * four, and make the opponent the player to move. A game given {@link #empty} gets no
+         * token but still has its player to move switched, which the caller undoes.
+         *
+         * @param moves the column per game
+         * @param curLo low words of the masks of the players to move
+         * @param curHi high words of the same
+         * @param allLo low words of the masks of all tokens
+         * @param allHi high words of the same
+         * @param fours the output
+         * @param from the first game
+         * @param to one past the last game
+         */
+        void step(int[] moves, long[] curLo, long[] curHi, long[] allLo, long[] allHi,
+                long[] fours, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int col = moves[i];
+                long lo = allLo[i];
+                long hi = allHi[i];
+                long sumLo = lo + this.bottomLo[col];
+                long carry = ((lo & this.bottomLo[col]) | ((lo | this.bottomLo[col]) & ~sumLo))
+                        >>> 63; // a column may span both words
+                long moveLo = sumLo & this.columnLo[col];
+                long moveHi = (hi + this.bottomHi[col] + carry) & this.columnHi[col];
+                long moverLo = curLo[i] | moveLo;
+                long moverHi = curHi[i] | moveHi;
+                allLo[i] = lo | moveLo;
+                allHi[i] = hi | moveHi;
+                curLo[i] = moverLo ^ allLo[i];
+                curHi[i] = moverHi ^ allHi[i];
+                fours[i] = BitBoard.hasFour(moverLo, moverHi, this.stride) ? 1 : 0;
+            } // for
+        } // step
+
+    } // Kernel
+
+    /**
+     * Return whether the vector kernel is in use.
+     *
+     * @return {@code true} if steps run on the Vector API
+     */
+    public boolean isVectorized() {
+        return this.kernel.getClass() != Kernel.class;
+    } // isVectorized
+
+    /**
+     * Return the number of games.
+     *
+     * @return the number of games
+     */
+    public int getGames() {
+        return this.games;
+    } // getGames
+
+    /**
+     * Return the number of grid rows.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    } // getRows
+
+    /**
+     * Return the number of grid columns.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    } // getCols
+
+    /**
+     * Return the number of games that are not over.
+     *
+     * @return the number of games still being played
+     */
+    public int getPlaying() {
+        return this.playing;
+    } // getPlaying
+
+    /**
+     * Return the number of tokens in game {@code game}.
+     *
+     * @param game the game index
+     * @return the number of tokens on its grid
+     * @throws IndexOutOfBoundsException if {@code game} is not a valid game index
+     */
+    public int getNumDropped(int game) {
+        return this.count[game];
+    } // getNumDropped
+
+    /**
+     * Return the player to drop next in game {@code game}. Player {@code 0} drops first.
+     *
+     * @param game the game index
+     * @return {@code 0} or {@code 1}
+     * @throws IndexOutOfBoundsException if {@code game} is not a valid game index
+     */
+    public int nextPlayer(int game) {
+        return this.count[game] & 1;
+    } // nextPlayer
+
+    /**
+     * Return the winner of game {@code game}, if any.
+     *
+     * @param game the game index
+     * @return {@code 0} or {@code 1} for the winner, or {@code -1} if nobody has won
+     * @throws IndexOutOfBoundsException if {@code game} is not a valid game index
+     */
+    public int getWinner(int game) {
+        return this.winner[game];
+    } // getWinner
+
+    /**
+     * Return whether game {@code game} is over: someone has won or the grid is full.
+     *
+     * @param game the game index
+     * @return {@code true} if no more drops are allowed in the game
+     * @throws IndexOutOfBoundsException if {@code game} is not a valid game index
+     */
+    public boolean isOver(int game) {
+        return this.winner[game] >= 0 || this.count[game] == this.rows * this.cols;
+    } // isOver
+
+    /**
+     * Return whether column {@code col} of game {@code game} is full.
+     *
+     * @param game the game index
+     * @param col the column index
+     * @return {@code true} if the column is full
+     * @throws IndexOutOfBoundsException if {@code game} or {@code col} is not a valid index
+     */
+    public boolean isColumnFull(int game, int col) {
+        if (col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: Please enter a valid column index.");
+        } // if
+        return has(this.allLo[game], this.allHi[game], col * this.stride + this.rows - 1);
+    } // isColumnFull
+
+    /**
+     * Return the player whose token is at {@code (row, col)} of game {@code game}. Rows are
+     * numbered from the top, as in {@link cs1001.game.ConnectFour#getTokenAt}.
+     *
+     * @param game the game index
+     * @param row the row index
+     * @param col the column index
+     * @return {@code 0} or {@code 1} for the owning player, or {@code -1} if the cell is empty
+     * @throws IndexOutOfBoundsException if an index is not valid
+     */
+    public int getPlayerAt(int game, int row, int col) {
+        if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: (%d, %d) is not in the grid.".formatted(row, col));
+        } // if
+        int bit = col * this.stride + this.rows - 1 - row;
+        if (!has(this.allLo[game], this.allHi[game], bit)) {
+            return -1;
+        } // if
+        int toMove = nextPlayer(game);
+        return has(this.curLo[game], this.curHi[game], bit) ? toMove : 1 - toMove;
+    } // getPlayerAt
+
+    /**
+     * Return whether bit {@code bit} of the two-word mask {@code (lo, hi)} is set.
+     *
+     * @param lo the mask's low word
+     * @param hi the mask's high word
+     * @param bit the bit index
+     * @return {@code true} if the bit is set
+     */
+    private static boolean has(long lo, long hi, int bit) {
+        return ((bit < 64 ? lo : hi) & 1L << bit) != 0;
+    } // has
+
+    /**
+     * Make one drop in every game that is not over: the next player of game {@code i} drops a
+     * token into column {@code cols[i]}. Entries for games that are over are ignored. Every
+     * column is checked before any token is dropped, so on an exception no game has changed.
+     *
+     * @param cols the column per game
+     * @return the number of games still being played afterwards
+     * @throws NullPointerException if {@code cols} is {@code null}
+     * @throws IllegalArgumentException if {@code cols.length != getGames()}
+     * @throws IndexOutOfBoundsException if a game that is not over is given an invalid column
+     * @throws IllegalStateException if a game that is not over is given a full column
+     */
+    public int drop(int[] cols) {
+        if (cols.length != this.games) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need one column for each of the %d games.".formatted(
+                    this.games));
+        } // if
+        for (int i = 0; i < this.games; i++) {
+            if (isOver(i)) {
+                this.moves[i] = this.kernel.empty; // drops nothing
+            } else if (isColumnFull(i, cols[i])) {
+                throw new IllegalStateException("Illegal Argument: Sorry, column full!");
+            } else {
+                this.moves[i] = cols[i];
+            } // if
+        } // for
+        this.kernel.step(this.moves, this.curLo, this.curHi, this.allLo, this.allHi,
+                this.fours, 0, this.games);
+        int size = this.rows * this.cols;
+        for (int i = 0; i < this.games; i++) {
+            if (this.moves[i] != this.kernel.empty) {
+                int mover = this.count[i]++ & 1;
+                if (this.fours[i] != 0) {
+                    this.winner[i] = (byte) mover;
+                    this.playing--;
+                } else if (this.count[i] == size) {
+                    this.playing--;
+                } // if
+            } else { // no drop: switch the player to move back
+                this.curLo[i] ^= this.allLo[i];
+                this.curHi[i] ^= this.allHi[i];
+            } // if
+        } // for
+        return this.playing;
+    } // drop
+
+    /**
+     * Clear game {@code game}, so that it starts over with an empty grid and player {@code 0}
+     * to move.
+     *
+     * @param game the game index
+     * @throws IndexOutOfBoundsException if {@code game} is not a valid game index
+     */
+    public void reset(int game) {
+        if (isOver(game)) {
+            this.playing++;
+        } // if
+        this.curLo[game] = 0;
+        this.curHi[game] = 0;
+        this.allLo[game] = 0;
+        this.allHi[game] = 0;
+        this.count[game] = 0;
+        this.winner[game] = -1;
+    } // reset
+
+    /**
+     * Play {@code total}-many random games on at most {@code lanes} boards at a time, starting
+     * each game over as soon as it ends, until that many have ended. Every drop is into an
+     * open column chosen uniformly at random.
+     *
+     * @param lanes the largest number of games to play at once
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param vector whether to use the vector kernel if it is available
+     * @param total the number of games to play (at least {@code 1})
+     * @param random the source of randomness
+     * @return player 0's wins, player 1's wins, draws and tokens dropped, in that order
+     */
+    static long[] playRandom(int lanes, int rows, int cols, boolean vector, long total,
+            SplittableRandom random) {
+        long[] results = new long[4];
+        int games = (int) Math.min(lanes, total); // no lane is left without a game to play
+        BatchBoards boards = new BatchBoards(games, rows, cols, vector);
+        int[] moves = new int[games];
+        boolean[] idle = new boolean[games]; // ended, and not started over
+        long started = games;
+        while (boards.playing > 0) {
+            for (int i = 0; i < games; i++) {
+                if (idle[i]) {
+                    continue;
+                } else if (boards.isOver(i)) {
+                    int w = boards.winner[i];
+                    results[w < 0 ? 2 : w]++;
+                    results[3] += boards.count[i];
+                    if (started == total) {
+                        idle[i] = true;
+                        continue;
+                    } // if
+                    boards.reset(i);
+                    started++;
+                } // if
+                int col = random.nextInt(cols);
+                while (boards.isColumnFull(i, col)) {
+                    col = random.nextInt(cols);
+                } // while
+                moves[i] = col;
+            } // for
+            boards.drop(moves);
+        } // while
+        for (int i = 0; i < games; i++) {
+            if (!idle[i]) {
+                int w = boards.winner[i];
+                results[w < 0 ? 2 : w]++;
+                results[3] += boards.count[i];
+            } // if
+        } // for
+        return results;
+    } // playRandom
+
+    /**
+     * Play {@code total}-many random games one at a time on a single
+     * {@link cs1001.game.BitBoard}, for comparison with {@link #playRandom}.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param total the number of games to play
+     * @param random the source of randomness
+     * @return player 0's wins, player 1's wins, draws and tokens dropped, in that order
+     */
+    static long[] playRandomSingly(int rows, int cols, long total, SplittableRandom random) {
+        long[] results = new long[4];
+        BitBoard board = new BitBoard(rows, cols);
+        for (long g = 0; g < total; g++) {
+            int player = 0;
+            int w = -1;
+            while (board.count < rows * cols) {
+                int col = random.nextInt(cols);
+                while (board.isFull(col)) {
+                    col = random.nextInt(cols);
+                } // while
+                int h = board.drop(player, col);
+                if (board.isWinAt(player, h, col)) {
+                    w = player;
+                    break;
+                } // if
+                player = 1 - player;
+            } // while
+            results[w < 0 ? 2 : w]++;
+            results[3] += board.count;
+            for (int col = 0; col < cols; col++) { // empty the board for the next game
+                while (board.height[col] > 0) {
+                    board.undo(col);
+                } // while
+            } // for
+        } // for
+        return results;
+    } // playRandomSingly
+
+    /**
+     * Play {@code games}-many random games to the end at once with the scalar kernel, with the
+     * vector kernel (if it is available) and one {@link cs1001.game.BitBoard} per game, all on
+     * the same seeded columns, and count the games whose masks or winner ever differ between
+     * the three.
+     *
+     * @param games the number of games
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param seed the seed for the columns
+     * @return the number of games that differ; {@code 0} if the kernels agree
+     */
+    static int compareKernels(int games, int rows, int cols, long seed) {
+        BatchBoards scalar = new BatchBoards(games, rows, cols, false);
+        BatchBoards vector = new BatchBoards(games, rows, cols, true);
+        BitBoard[] boards = new BitBoard[games];
+        int[] winners = new int[games];
+        for (int i = 0; i < games; i++) {
+            boards[i] = new BitBoard(rows, cols);
+            winners[i] = -1;
+        } // for
+        boolean[] bad = new boolean[games];
+        int[] moves = new int[games];
+        SplittableRandom random = new SplittableRandom(seed);
+        int playing = games;
+        while (playing > 0) {
+            for (int i = 0; i < games; i++) {
+                BitBoard board = boards[i];
+                if (winners[i] >= 0 || board.count == rows * cols) {
+                    continue;
+                } // if
+                int col = random.nextInt(cols);
+                while (board.isFull(col)) {
+                    col = random.nextInt(cols);
+                } // while
+                moves[i] = col;
+                int player = board.count & 1;
+                if (board.isWinAt(player, board.drop(player, col), col)) {
+                    winners[i] = player;
+                } // if
+                if (winners[i] >= 0 || board.count == rows * cols) {
+                    playing--;
+                } // if
+            } // for
+            scalar.drop(moves);
+            vector.drop(moves);
+            for (int i = 0; i < games; i++) {
+                bad[i] |= !sameGame(scalar, i, boards[i], winners[i])
+                        || !sameGame(vector, i, boards[i], winners[i]);
+            } // for
+        } // while
+        int differ = 0;
+        for (int i = 0; i < games; i++) {
+            differ += bad[i] ? 1 : 0;
+        } // for
+        return differ;
+    } // compareKernels
+
+    /**
+     * Return whether game {@code i} of {@code batch} has the same masks, token count and
+     * winner as {@code board}.
+     *
+     * @param batch the games
+     * @param i the game index
+     * @param board the same game, played on its own
+     * @param winner the winner of {@code board}, or {@code -1}
+     * @return {@code true} if they agree
+     */
+    private static boolean sameGame(BatchBoards batch, int i, BitBoard board, int winner) {
+        int toMove = board.count & 1;
+        return batch.count[i] == board.count && batch.winner[i] == winner
+                && batch.allLo[i] == (board.lo[0] | board.lo[1])
+                && batch.allHi[i] == (board.hi[0] | board.hi[1])
+                && batch.curLo[i] == board.lo[toMove] && batch.curHi[i] == board.hi[toMove];
+    } // sameGame
+
+    /**
+     * Compare the throughput of random playouts in lockstep (with the scalar kernel, and with
+     * the vector kernel if it is available) and one game at a time.
+     *
+     * <pre>
+     * java [--add-modules jdk.incubator.vector] cs1001.game.BatchBoards [games [lanes [rows cols]]]
+     * </pre>
+     *
+     * <p>
+     * {@code games} (default {@code 1000000}) random games are played on {@code lanes}
+     * (default {@code 4096}) boards at a time, on a 6x7 grid by default. Each run is repeated
+     * to warm up the JIT, and the second timing is printed. First, {@code lanes} games are
+     * played with every kernel on the same columns (see {@link #compareKernels}) and the
+     * number of games that differ is printed; it should be {@code 0}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long total = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int lanes = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int rows = args.length > 3 ? Integer.parseInt(args[2]) : 6;
+        int cols = args.length > 3 ? Integer.parseInt(args[3]) : 7;
+        boolean vector = new BatchBoards(1, rows, cols).isVectorized();
+        int differ = compareKernels(lanes, rows, cols, 0);
+        System.out.printf("check: %d of %d games differ between the kernels and BitBoard\n",
+                differ, lanes);
+        String[] names = {"lockstep, scalar kernel", "lockstep, vector kernel", "one at a time"};
+        for (int run = 0; run < names.length; run++) {
+            if (run == 1 && !vector) {
+                System.out.println(names[run] + ": not available (see the class description)");
+                continue;
+            } // if
+            long[] results = null;
+            long nanos = 0;
+            for (int round = 0; round < 2; round++) { // the first round warms up the JIT
+                SplittableRandom random = new SplittableRandom(0);
+                long start = System.nanoTime();
+                results = run == 2 ? playRandomSingly(rows, cols, total, random)
+                        : playRandom(lanes, rows, cols, run == 1, total, random);
+                nanos = System.nanoTime() - start;
+            } // for
+            System.out.printf("%s: %d games in %.3f s (%.0f games/s, %.0f drops/s); "
+                    + "wins %d / %d, draws %d\n", names[run], total, nanos / 1e9,
+                    total * 1e9 / nanos, results[3] * 1e9 / nanos, results[0], results[1],
+                    results[2]);
+        } // for
+    } // main
+
+} // BatchBoards
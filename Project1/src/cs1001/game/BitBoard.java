@@ -0,0 +1,282 @@
+package cs1001.game;
+
+/**
+ * {@code BitBoard} is the bit-level game state behind {@link cs1001.game.ConnectFour}. Each
+ * player owns one bit mask of the grid and each column keeps its fill height, so a drop is a
+ * single {@code OR} and a win check is a handful of shifts and {@code AND}s (or, for the
+ * cell of the last drop, a few table lookups).
+ *
+ * <p>
+ * Bits are laid out column by column from the bottom up. Cell {@code (h, col)}, where
+ * {@code h} counts rows from the <em>bottom</em> of the grid, lives at bit
+ * {@code col * stride + h} with {@code stride = rows + 1}. The extra (always empty) bit on top
+ * of every column keeps horizontal and diagonal shifts from wrapping into the next column.
+ *
+ * <p>
+ * The largest supported grid (9x9) needs {@code 9 * 10 = 90} bits, which is more than one
+ * {@code long} can hold, so every mask is split into a low word (bits {@code 0..63}) and a high
+ * word (bits {@code 64..127}). Grids of up to 64 bits (e.g., the classic 6x7) never touch the
+ * high word.
+ */
+final class BitBoard {
+
+    final int rows; // number of grid rows
+    final int cols; // number of grid columns
+    final int stride; // bits per column, including the sentinel bit on top
+    final long[] lo; // low word of each player's mask (length 2)
+    final long[] hi; // high word of each player's mask (length 2)
+    final byte[] height; // number of tokens in each column
+    final WinTable wins; // per-cell win windows for this grid size
+    int count; // number of tokens on the grid
+
+    /**
+     * Constructs an empty {@code BitBoard} with {@code rows}-many rows and {@code cols}-many
+     * columns. Sizes are assumed to be validated by the caller.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     */
+    BitBoard(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = rows + 1;
+        this.lo = new long[2];
+        this.hi = new long[2];
+        this.height = new byte[cols];
+        this.wins = WinTable.of(rows, cols);
+        this.count = 0;
+    } // BitBoard
+
+    /**
+     * Constructs a copy of {@code other} that can be played on independently, e.g., by a
+     * search that makes and unmakes moves in place.
+     *
+     * @param other the board to copy
+     */
+    BitBoard(BitBoard other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.stride = other.stride;
+        this.lo = other.lo.clone();
+        this.hi = other.hi.clone();
+        this.height = other.height.clone();
+        this.wins = other.wins;
+        this.count = other.count;
+    } // BitBoard
+
+    /**
+     * Return whether column {@code col} has no room for another token.
+     *
+     * @param col the column index
+     * @return {@code true} if the column is full
+     */
+    boolean isFull(int col) {
+        return this.height[col] >= this.rows;
+    } // isFull
+
+    /**
+     * Drop {@code player}'s token into column {@code col}. The column is assumed not to be full.
+     *
+     * @param player the player ({@code 0} or {@code 1})
+     * @param col the column index
+     * @return the height (counted from the bottom, starting at {@code 0}) where the token landed
+     */
+    int drop(int player, int col) {
+        int h = this.height[col]++;
+        int bit = col * this.stride + h;
+        // shift distances are taken mod 64, so the same expression serves both words
+        if (bit < 64) {
+            this.lo[player] |= 1L << bit;
+        } else {
+            this.hi[player] |= 1L << bit;
+        } // if
+        this.count++;
+        return h;
+    } // drop
+
+    /**
+     * Take back the top token of column {@code col}. The column is assumed not to be empty.
+     *
+     * @param col the column index
+     */
+    void undo(int col) {
+        int bit = col * this.stride + --this.height[col];
+        long clear = ~(1L << bit);
+        if (bit < 64) {
+            this.lo[0] &= clear;
+            this.lo[1] &= clear;
+        } else {
+            this.hi[0] &= clear;
+            this.hi[1] &= clear;
+        } // if
+        this.count--;
+    } // undo
+
+    /**
+     * Return {@code true} if dropping {@code player}'s token into column {@code col} would
+     * create a connect four. The board itself is not changed. The column is assumed not to be
+     * full.
+     *
+     * @param player the player ({@code 0} or {@code 1})
+     * @param col the column index
+     * @return {@code true} if the drop would win
+     */
+    boolean isWinningDrop(int player, int col) {
+        int h = this.height[col];
+        int bit = col * this.stride + h;
+        long l = this.lo[player];
+        long hw = this.hi[player];
+        if (bit < 64) {
+            l |= 1L << bit;
+        } else {
+            hw |= 1L << bit;
+        } // if
+        return this.wins.isWinAt(l, hw, h, col);
+    } // isWinningDrop
+
+    /**
+     * Return the player whose token occupies the cell at height {@code h} (counted from the
+     * bottom) in column {@code col}.
+     *
+     * @param h the cell's height
+     * @param col the cell's column index
+     * @return {@code 0} or {@code 1} for the owning player, or {@code -1} if the cell is empty
+     */
+    int owner(int h, int col) {
+        int bit = col * this.stride + h;
+        long mask = 1L << bit;
+        if (bit < 64) {
+            return (this.lo[0] & mask) != 0 ? 0 : (this.lo[1] & mask) != 0 ? 1 : -1;
+        } // if
+        return (this.hi[0] & mask) != 0 ? 0 : (this.hi[1] & mask) != 0 ? 1 : -1;
+    } // owner
+
+    /**
+     * Return {@code true} if {@code player} has four tokens in a row anywhere on the grid.
+     *
+     * @param player the player ({@code 0} or {@code 1})
+     * @return {@code true} if the player's mask contains a connect four
+     */
+    boolean hasFour(int player) {
+        return hasFour(this.lo[player], this.hi[player], this.stride);
+    } // hasFour
+
+    /**
+     * Return {@code true} if the two-word mask {@code (l, h)} of a grid laid out with
+     * {@code stride} bits per column contains a connect four anywhere.
+     *
+     * @param l the mask's low word
+     * @param h the mask's high word
+     * @param stride the number of bits per column ({@code rows + 1})
+     * @return {@code true} if the mask contains a connect four
+     */
+    static boolean hasFour(long l, long h, int stride) {
+        return aligned(l, h, 1) // vertical
+                || aligned(l, h, stride) // horizontal
+                || aligned(l, h, stride - 1) // anti-diagonal (NW to SE)
+                || aligned(l, h, stride + 1); // diagonal (SW to NE)
+    } // hasFour
+
+    /**
+     * Return the bits of the two-word mask {@code (l, h)} from bit {@code shift} up, in the low
+     * bits of the result. Mask the result to keep one column.
+     *
+     * @param l the mask's low word
+     * @param h the mask's high word
+     * @param shift the index of the first bit ({@code 0..127})
+     * @return the mask shifted right by {@code shift}, truncated to 64 bits
+     */
+    static long column(long l, long h, int shift) {
+        if (shift == 0) {
+            return l;
+        } else if (shift < 64) {
+            return l >>> shift | h << (64 - shift);
+        } // if
+        return h >>> (shift - 64);
+    } // column
+
+    /**
+     * Return the low word of the mirror image of the two-word mask {@code (l, h)} across the
+     * grid's vertical axis: column {@code col} moves to column {@code cols - 1 - col}. Any mask
+     * whose columns stay within their own {@code rows + 1} bits can be mirrored this way,
+     * including a {@link cs1001.game.TranspositionTable} key.
+     *
+     * @param l the mask's low word
+     * @param h the mask's high word
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @return the mirrored mask's low word
+     */
+    static long mirrorLo(long l, long h, int rows, int cols) {
+        int stride = rows + 1;
+        long columnMask = (1L << stride) - 1;
+        long m = 0;
+        for (int col = 0; col < cols; col++) {
+            int to = (cols - 1 - col) * stride;
+            if (to < 64) {
+                m |= (column(l, h, col * stride) & columnMask) << to;
+            } // if
+        } // for
+        return m;
+    } // mirrorLo
+
+    /**
+     * Return the high word of the mirror image of the two-word mask {@code (l, h)} (see
+     * {@link #mirrorLo}).
+     *
+     * @param l the mask's low word
+     * @param h the mask's high word
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @return the mirrored mask's high word
+     */
+    static long mirrorHi(long l, long h, int rows, int cols) {
+        int stride = rows + 1;
+        long columnMask = (1L << stride) - 1;
+        long m = 0;
+        for (int col = 0; col < cols; col++) {
+            int to = (cols - 1 - col) * stride;
+            long bits = column(l, h, col * stride) & columnMask;
+            if (to >= 64) {
+                m |= bits << (to - 64);
+            } else if (to + stride > 64) { // the column straddles the two words
+                m |= bits >>> (64 - to);
+            } // if
+        } // for
+        return m;
+    } // mirrorHi
+
+    /**
+     * Return {@code true} if {@code player} has a connect four passing through the cell at
+     * height {@code h} (counted from the bottom) in column {@code col}. Only the windows through
+     * that cell are tested (see {@link cs1001.game.WinTable}), which is what a check after a
+     * drop needs.
+     *
+     * @param player the player ({@code 0} or {@code 1})
+     * @param h the cell's height
+     * @param col the cell's column index
+     * @return {@code true} if the cell is part of one of the player's connect fours
+     */
+    boolean isWinAt(int player, int h, int col) {
+        return this.wins.isWinAt(this.lo[player], this.hi[player], h, col);
+    } // isWinAt
+
+    /**
+     * Return {@code true} if the two-word mask {@code (l, h)} has four set bits spaced
+     * {@code s} bits apart. Pairs are found with {@code m = b & (b >> s)}, then pairs of pairs
+     * with {@code m & (m >> 2s)}; the right shift carries bits from the high word into the low
+     * word.
+     *
+     * @param l the mask's low word
+     * @param h the mask's high word
+     * @param s the shift distance for one step in the checked direction ({@code 0 < s < 32})
+     * @return {@code true} if four bits are aligned in that direction
+     */
+    private static boolean aligned(long l, long h, int s) {
+        long ml = l & ((l >>> s) | (h << (64 - s)));
+        long mh = h & (h >>> s);
+        int s2 = s << 1;
+        return ((ml & ((ml >>> s2) | (mh << (64 - s2)))) | (mh & (mh >>> s2))) != 0;
+    } // aligned
+
+} // BitBoard
@@ -1,5 +1,6 @@
 package cs1001.game;
 
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.io.FileNotFoundException;
 import java.io.File;
@@ -10,6 +11,16 @@ import cs1302.gameutil.Token;
 
 /**
  * A class to allow for CLI gameplay of a connect four game.
+ *
+ * <p>
+ * Screens are drawn by a {@link cs1001.game.ConsoleRenderer}. With {@code --headless} (or its
+ * alias {@code --quiet}) nothing is drawn: the program reads the grid size, the two token names
+ * and then one column per line from standard input, and prints only the outcome, e.g.
+ *
+ * <pre>
+ * $ printf '6\n7\nRED\nBLUE\n0\n1\n0\n1\n0\n1\n0\n' | java cs1001.game.ConnectFourCLI --headless
+ * winner 0
+ * </pre>
  */
 public class ConnectFourCLI {
 
@@ -17,12 +28,28 @@ public class ConnectFourCLI {
 
     /**
      * Entry point to the {@link cs1001.game.ConnectFourDriver} program.
-     * @param args the command-line arguments (not used)
+     * @param args the command-line arguments: {@code --headless} or {@code --quiet} to skip
+     *     all rendering
      */
     public static void main(String[] args) {
-        ConnectFourCLI.printWelcome();
-        ConnectFour game = ConnectFourCLI.manualSetUp();
-        ConnectFourCLI.play(game);
+        boolean headless = false;
+        for (String arg : args) {
+            if (arg.equals("--headless") || arg.equals("--quiet")) {
+                headless = true;
+            } else {
+                System.out.println("Usage: java cs1001.game.ConnectFourCLI [--headless|--quiet]");
+                return;
+            } // if
+        } // for
+        ConsoleRenderer renderer =
+            headless ? ConsoleRenderer.headless() : new ConsoleRenderer(System.out);
+        renderer.welcome();
+        try {
+            ConnectFour game = ConnectFourCLI.manualSetUp(renderer);
+            ConnectFourCLI.play(game, renderer);
+        } catch (NoSuchElementException nsee) {
+            System.out.println("\n*** Input ended before the game was over ***");
+        } // try
     } // main
 
     /**
@@ -32,25 +59,39 @@ public class ConnectFourCLI {
      *@return game a {@code ConnectFour} object.
      */
     public static ConnectFour manualSetUp() {
+        return manualSetUp(new ConsoleRenderer(System.out));
+    } // manualSetUp
+
+    /**
+     * Sets up a game like {@link #manualSetUp()}, with prompts and errors drawn by
+     * {@code renderer}.
+     *
+     * @param renderer the renderer to draw with
+     * @return game a {@code ConnectFour} object.
+     * @throws NoSuchElementException if standard input ends first
+     */
+    public static ConnectFour manualSetUp(ConsoleRenderer renderer) {
 
         while (true) {
             try {
-                System.out.print("\nPlease enter the number of row for the board (6-9): ");
-                int rows = Integer.parseInt(STD_IN.nextLine());
-                System.out.print("\nPlease enter the number of columns for the board (7-9): ");
-                int columns = Integer.parseInt(STD_IN.nextLine());
+                renderer.message("\nPlease enter the number of row for the board (6-9): ");
+                int rows = Integer.parseInt(STD_IN.nextLine().trim());
+                renderer.message("\nPlease enter the number of columns for the board (7-9): ");
+                int columns = Integer.parseInt(STD_IN.nextLine().trim());
                 ConnectFour game = new ConnectFour(rows,columns);
-                System.out.print("\nEnter a color for Player 1's token " +
+                renderer.message("\nEnter a color for Player 1's token " +
                     "(BLUE, CYAN, GREEN, PURPLE, RED, YELLOW): ");
-                Token player1 = Token.valueOf(STD_IN.nextLine().toUpperCase());
-                System.out.print("\nEnter a color for Player 2's token " +
+                Token player1 = Token.valueOf(STD_IN.nextLine().trim().toUpperCase());
+                renderer.message("\nEnter a color for Player 2's token " +
                     "(BLUE, CYAN, GREEN, PURPLE, RED, YELLOW): ");
-                Token player2 = Token.valueOf(STD_IN.nextLine().toUpperCase());
+                Token player2 = Token.valueOf(STD_IN.nextLine().trim().toUpperCase());
                 game.setPlayerTokens(player1, player2);
                 return game;
+            } catch (NoSuchElementException nsee) {
+                throw nsee; // no more input: retrying would loop forever
             } catch (Exception e) {
-                System.out.println("\n*** Please enter valid entries for the board and" +
-                    "player tokens ***");
+                renderer.message("\n*** Please enter valid entries for the board and" +
+                    "player tokens ***\n");
             } // try
         } // while
     } // manualSetUp
@@ -79,14 +120,14 @@ public class ConnectFourCLI {
      * prints the 'Connect Four' header from the 'resources/connectfour.txt' file.
      */
     public static void printHeader() {
-        printFileLines("resources/connectfour.txt");
+        System.out.print(ConsoleRenderer.headerBanner());
     } // printHeader
 
     /**
      * prints the 'Welcome' banner from the 'resources/welcome.txt' file.
      */
     public static void printWelcome() {
-        printFileLines("resources/welcome.txt");
+        System.out.print(ConsoleRenderer.welcomeBanner());
         System.out.println();
         ConnectFourCLI.printHeader();
     } // printWelcome
@@ -95,7 +136,7 @@ public class ConnectFourCLI {
      * prints the 'Game Over' banner from the 'resources/gameover.txt' file.
      */
     public static void printGameOver() {
-        printFileLines("resources/gameover.txt");
+        System.out.print(ConsoleRenderer.gameOverBanner());
     } // printGameOver
 
     /**
@@ -106,29 +147,33 @@ public class ConnectFourCLI {
      * @param game a {@code ConnectFour} game to be played.
      */
     public static void play(ConnectFour game) {
+        play(game, new ConsoleRenderer(System.out));
+    } // play
+
+    /**
+     * Plays a game like {@link #play(ConnectFour)}, with every screen drawn by
+     * {@code renderer}.
+     *
+     * @param game a {@code ConnectFour} game to be played.
+     * @param renderer the renderer to draw with
+     * @throws NoSuchElementException if standard input ends before the game is over
+     */
+    public static void play(ConnectFour game, ConsoleRenderer renderer) {
         int player = 0;
-        boolean isWon = false;
 
         while (game.getPhase() != GamePhase.OVER) {
             try {
-                ConnectFourCLI.printHeader();
-                System.out.println();
-                game.printGrid();
-                System.out.print("\nPlayer " + player + ", enter a column to drop your token: ");
+                renderer.turn(game, player);
                 int col = Integer.parseInt(STD_IN.nextLine().trim());
                 game.dropToken(player, col);
                 player = (player + 1) % 2;
-                isWon = game.isLastDropConnectFour();
+            } catch (NoSuchElementException nsee) {
+                throw nsee; // no more input: retrying would loop forever
             } catch (Exception e) {
-                System.out.println("\n *** Invalid column entry, try again ***");
+                renderer.message("\n *** Invalid column entry, try again ***\n");
             } // try
         } // while
-        ConnectFourCLI.printGameOver();
-        game.printGrid();
-
-        if (game.isLastDropConnectFour()) {
-            player = (player + 1) % 2;
-            System.out.printf("\n\nCongratulations, player %s. You won!\n\n", player);
-        } // if
+        renderer.gameOver(game);
+        renderer.result(game.isLastDropConnectFour() ? (player + 1) % 2 : -1);
     } // play
 } // ConnectFourCLI
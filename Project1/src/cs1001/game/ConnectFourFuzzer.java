@@ -0,0 +1,745 @@
+package cs1001.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A differential fuzzer for {@link cs1001.game.ConnectFour}. It makes random sequences of calls
+ * on the engine and on a deliberately naive model of the documented API (a {@code Token[][]}
+ * grid and a check of every four-cell window through the last drop), and compares every return
+ * value, every exception type and, after every call that may change the game, all of its
+ * observable state.
+ *
+ * <p>
+ * Calls are generated while they run, from the model's state, so few of them are wasted. Most
+ * are legal drops, but the fuzzer also sends bad players and columns, drops into full columns
+ * and finished games, null and equal tokens, token changes after the first drop, out-of-bounds
+ * reads, unsupported grid sizes and take-backs, including take-backs of winning drops. Since
+ * {@code dropToken} does not enforce turn order, some games let one player drop several tokens
+ * in a row near the last column, which completes lines of every direction against every edge
+ * of the grid within a few drops.
+ *
+ * <p>
+ * Games are spread over a {@link java.util.concurrent.ForkJoinPool} in contiguous batches, as
+ * in {@link cs1001.game.Tournament}, and game {@code i} is generated from the seed
+ * {@code seed + i}, so a failing game can be replayed alone with {@link #check}. The first
+ * mismatch stops the run. Its call sequence is then shrunk, by taking out chunks of calls and
+ * finally single calls for as long as the mismatch remains, to a short script that still fails.
+ *
+ * <pre>
+ * $ java cs1001.game.ConnectFourFuzzer 1000000
+ * </pre>
+ */
+public final class ConnectFourFuzzer {
+
+    /** Number of batches per thread; more than one evens out batches of unequal length. */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /** The tokens the fuzzer assigns; index {@code -1} stands for {@code null}. */
+    private static final Token[] TOKENS = Token.values();
+
+    /** The outcome of a call that returns nothing and throws nothing. */
+    private static final Object VOID = "void";
+
+    /**
+     * No instances: all methods are static.
+     */
+    private ConnectFourFuzzer() {
+    } // ConnectFourFuzzer
+
+    /**
+     * The {@code ConnectFour} methods the fuzzer calls. The getters without arguments are not
+     * listed: they are compared after every call.
+     */
+    public enum Call { NEW, SET_TOKENS, DROP, UNDO, TOKEN_AT, COLUMN_FULL, PLAYER_TOKEN }
+
+    /**
+     * One call in a fuzzed sequence.
+     *
+     * @param call the method called
+     * @param a the first argument (rows, player, row or column; a token index for
+     *          {@code SET_TOKENS}, where {@code -1} is {@code null}), if any
+     * @param b the second argument, if any
+     */
+    public record Op(Call call, int a, int b) {
+
+        /**
+         * Return the call as Java source.
+         *
+         * @return the call
+         */
+        @Override
+        public String toString() {
+            return switch (call) {
+            case NEW -> "new ConnectFour(%d, %d)".formatted(a, b);
+            case SET_TOKENS -> "setPlayerTokens(%s, %s)".formatted(token(a), token(b));
+            case DROP -> "dropToken(%d, %d)".formatted(a, b);
+            case UNDO -> "undoLastDrop()";
+            case TOKEN_AT -> "getTokenAt(%d, %d)".formatted(a, b);
+            case COLUMN_FULL -> "isColumnFull(%d)".formatted(a);
+            case PLAYER_TOKEN -> "getPlayerToken(%d)".formatted(a);
+            };
+        } // toString
+
+    } // Op
+
+    /**
+     * A mismatch between the engine and the model, with the shortest call sequence found that
+     * still shows it.
+     *
+     * @param seed the seed of the failing game
+     * @param ops the shrunk call sequence; it always starts with a {@code NEW} call
+     * @param message what differed, after the last call of {@code ops}
+     */
+    public record Failure(long seed, List<Op> ops, String message) {
+
+        /**
+         * Return the failing script, one call per line.
+         *
+         * @return the script
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("mismatch in game seed ").append(seed).append(" after ").append(ops.size())
+                    .append(" call(s):\n");
+            for (Op op : ops) {
+                sb.append("    ").append(op).append(";\n");
+            } // for
+            return sb.append("    // ").append(message).toString();
+        } // toString
+
+    } // Failure
+
+    /**
+     * The outcome of a fuzzing run.
+     *
+     * @param games the number of games played
+     * @param calls the number of calls compared, over all games
+     * @param exceptions the number of those calls that were expected to throw
+     * @param wins the number of drops that won a game
+     * @param draws the number of drops that filled a grid without winning
+     * @param nanos the wall-clock time of the run, in nanoseconds
+     * @param failure the first mismatch found, or {@code null} if there was none
+     */
+    public record Summary(long games, long calls, long exceptions, long wins, long draws,
+            long nanos, Failure failure) {
+
+        /**
+         * Return the throughput.
+         *
+         * @return games played per second
+         */
+        public double gamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1e9 / nanos;
+        } // gamesPerSecond
+
+        /**
+         * Return a one-line report of the run, followed by the failing script if there is one.
+         *
+         * @return the report
+         */
+        @Override
+        public String toString() {
+            return ("%d games, %d calls (%d throwing), %d wins, %d draws in %.2f s "
+                    + "(%.0f games/s)").formatted(games, calls, exceptions, wins, draws,
+                    nanos / 1e9, gamesPerSecond())
+                    + (failure == null ? "; no mismatch" : "\n" + failure);
+        } // toString
+
+    } // Summary
+
+    /**
+     * Fuzz {@code games}-many games on {@code threads}-many threads.
+     *
+     * @param games the number of games
+     * @param threads the number of worker threads
+     * @param seed the seed of game {@code 0}
+     * @return the results, with the first mismatch found already shrunk
+     * @throws IllegalArgumentException if {@code games < 0} or {@code threads < 1}
+     */
+    public static Summary run(long games, int threads, long seed) {
+        if (games < 0 || threads < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need games >= 0 and at least one thread.");
+        } // if
+        long start = System.nanoTime();
+        AtomicReference<Failure> failure = new AtomicReference<>();
+        long batches = Math.min(games, (long) threads * BATCHES_PER_THREAD);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (long i = 0; i < batches; i++) {
+            long from = games * i / batches;
+            long to = games * (i + 1) / batches;
+            tasks.add(() -> fuzzBatch(from, to, seed, failure));
+        } // for
+        long[] totals = new long[5];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<long[]> future : pool.invokeAll(tasks)) {
+                long[] counts = future.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                } // for
+            } // for
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fuzzing.", ie);
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException("The fuzzer failed.", ee.getCause());
+        } finally {
+            pool.shutdown();
+        } // try
+        return new Summary(totals[0], totals[1], totals[2], totals[3], totals[4],
+                System.nanoTime() - start, failure.get());
+    } // run
+
+    /**
+     * Fuzz games {@code from} (inclusive) to {@code to} (exclusive), or until some worker has
+     * found a mismatch.
+     *
+     * @param from the first game number
+     * @param to one past the last game number
+     * @param seed the seed of game {@code 0}
+     * @param failure where the first mismatch found is kept
+     * @return games, calls, throwing calls, wins and draws, in that order
+     */
+    private static long[] fuzzBatch(long from, long to, long seed,
+            AtomicReference<Failure> failure) {
+        long[] counts = new long[5];
+        List<Op> ops = new ArrayList<>();
+        for (long i = from; i < to && failure.get() == null; i++) {
+            ops.clear();
+            String message = fuzz(new SplittableRandom(seed + i), ops, counts);
+            counts[0]++;
+            if (message != null) {
+                failure.compareAndSet(null, shrink(seed + i, ops, message));
+            } // if
+        } // for
+        return counts;
+    } // fuzzBatch
+
+    /**
+     * Replay the game generated from {@code seed} and return its shrunk mismatch, if any.
+     *
+     * @param seed the seed of the game
+     * @return the mismatch, or {@code null} if the engine agrees with the model
+     */
+    public static Failure check(long seed) {
+        List<Op> ops = new ArrayList<>();
+        String message = fuzz(new SplittableRandom(seed), ops, new long[5]);
+        return message == null ? null : shrink(seed, ops, message);
+    } // check
+
+    /**
+     * Generate and run one game, appending its calls to {@code ops}.
+     *
+     * @param random the source of calls
+     * @param ops the calls made so far (empty on entry)
+     * @param counts calls, throwing calls, wins and draws are added to elements {@code 1}
+     *               to {@code 4}
+     * @return the first mismatch, or {@code null} if there was none
+     */
+    private static String fuzz(SplittableRandom random, List<Op> ops, long[] counts) {
+        Pair pair = new Pair();
+        boolean odd = random.nextInt(64) == 0; // mostly supported sizes, sometimes not
+        int rows = odd ? random.nextInt(4, 12) : random.nextInt(6, 10);
+        int cols = odd ? random.nextInt(4, 12) : random.nextInt(7, 10);
+        int style = random.nextInt(3); // 0: take turns, 1: random players, 2: long streaks
+        int player = 0;
+        int col = random.nextInt(cols);
+        Op op = new Op(Call.NEW, rows, cols);
+        for (int budget = 2 * rows * cols + 16; budget > 0; budget--) {
+            ops.add(op);
+            String message = pair.step(op, counts);
+            if (message != null || pair.model == null) {
+                return message;
+            } // if
+            Reference model = pair.model;
+            int pick = random.nextInt(32);
+            if (model.phase == GamePhase.NEW || model.phase == GamePhase.READY && pick < 4) {
+                int t0 = random.nextInt(8) == 0 ? -1 : random.nextInt(TOKENS.length);
+                int t1 = random.nextInt(8) == 0 ? -1 : random.nextInt(TOKENS.length);
+                op = new Op(Call.SET_TOKENS, t0, t1);
+            } else if (model.phase == GamePhase.OVER && pick < 8) {
+                return null;
+            } else if (model.phase == GamePhase.OVER && pick < 24 || pick == 0) {
+                op = new Op(Call.UNDO, 0, 0);
+            } else if (pick == 1) {
+                op = new Op(Call.DROP, random.nextBoolean() ? -1 : 2, random.nextInt(cols));
+            } else if (pick == 2) {
+                op = new Op(Call.DROP, player, random.nextBoolean() ? -1 : cols);
+            } else if (pick == 3) {
+                op = new Op(Call.TOKEN_AT, random.nextInt(-1, rows + 1),
+                        random.nextInt(-1, cols + 1));
+            } else if (pick == 4) {
+                op = new Op(Call.COLUMN_FULL, random.nextInt(-1, cols + 1), 0);
+            } else if (pick == 5) {
+                op = new Op(Call.PLAYER_TOKEN, random.nextInt(-1, 3), 0);
+            } else if (pick == 6) {
+                op = new Op(Call.SET_TOKENS, random.nextInt(TOKENS.length),
+                        random.nextInt(TOKENS.length));
+            } else {
+                player = switch (style) {
+                case 0 -> model.numDropped % 2;
+                case 1 -> random.nextInt(2);
+                default -> random.nextInt(4) == 0 ? 1 - player : player;
+                };
+                col = random.nextBoolean() ? random.nextInt(cols)
+                        : Math.max(0, Math.min(cols - 1, col + random.nextInt(-1, 2)));
+                op = new Op(Call.DROP, player, col);
+            } // if
+        } // for
+        return null;
+    } // fuzz
+
+    /**
+     * Shrink a failing call sequence: take out chunks of calls, halving the chunk size down to
+     * single calls, and keep every removal after which some mismatch remains. The first call,
+     * which creates the game, is always kept.
+     *
+     * @param seed the seed of the failing game
+     * @param ops the failing calls
+     * @param message the mismatch {@code ops} shows
+     * @return the shrunk mismatch
+     */
+    static Failure shrink(long seed, List<Op> ops, String message) {
+        List<Op> best = List.copyOf(ops);
+        int chunk = Math.max(1, (best.size() - 1) / 2);
+        while (true) {
+            boolean removed = false;
+            for (int from = 1; from < best.size(); ) {
+                List<Op> candidate = new ArrayList<>(best.subList(0, from));
+                candidate.addAll(best.subList(Math.min(from + chunk, best.size()), best.size()));
+                String m = replay(candidate);
+                if (m != null) {
+                    best = List.copyOf(candidate);
+                    message = m;
+                    removed = true;
+                } else {
+                    from += chunk;
+                } // if
+            } // for
+            if (!removed && chunk == 1) {
+                return new Failure(seed, best, message);
+            } else if (!removed) {
+                chunk /= 2;
+            } // if
+        } // while
+    } // shrink
+
+    /**
+     * Run a call sequence on a fresh engine and model.
+     *
+     * @param ops the calls; the first one must be {@code NEW}
+     * @return the first mismatch, or {@code null} if there was none
+     */
+    private static String replay(List<Op> ops) {
+        Pair pair = new Pair();
+        long[] counts = new long[5];
+        for (int i = 0; i < ops.size(); i++) {
+            String message = pair.step(ops.get(i), counts);
+            if (message != null) {
+                return message;
+            } // if
+        } // for
+        return null;
+    } // replay
+
+    /**
+     * Return the token with index {@code index}.
+     *
+     * @param index an index into {@link #TOKENS}, or {@code -1}
+     * @return the token, or {@code null} if {@code index} is negative
+     */
+    private static Token token(int index) {
+        return index < 0 ? null : TOKENS[index];
+    } // token
+
+    /**
+     * Run {@code call} and return what it returned or the class of what it threw.
+     *
+     * @param call the call
+     * @return the return value ({@code VOID} for none) or the exception class
+     */
+    private static Object outcome(Supplier<Object> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        } // try
+    } // outcome
+
+    /**
+     * Return an outcome as text.
+     *
+     * @param outcome a return value or an exception class
+     * @return the text
+     */
+    private static String describe(Object outcome) {
+        return outcome instanceof Class<?> c ? c.getSimpleName() : String.valueOf(outcome);
+    } // describe
+
+    /**
+     * An engine and a model that have seen the same calls.
+     */
+    private static final class Pair {
+
+        /** The engine under test, once created. */
+        private ConnectFour game;
+
+        /** The model, once created. */
+        private Reference model;
+
+        /**
+         * Make one call on both sides and compare the outcomes and then the whole state.
+         *
+         * @param op the call
+         * @param counts calls, throwing calls, wins and draws are added to elements {@code 1}
+         *               to {@code 4}
+         * @return the first difference, or {@code null} if there was none
+         */
+        private String step(Op op, long[] counts) {
+            Object expected;
+            Object actual;
+            GamePhase before = model == null ? null : model.phase;
+            if (op.call() == Call.NEW) {
+                boolean ok = 6 <= op.a() && op.a() <= 9 && 7 <= op.b() && op.b() <= 9;
+                model = ok ? new Reference(op.a(), op.b()) : null;
+                expected = ok ? VOID : IllegalArgumentException.class;
+                actual = outcome(() -> {
+                    game = new ConnectFour(op.a(), op.b());
+                    return VOID;
+                });
+            } else if (game == null || model == null) {
+                return null; // nothing to call
+            } else {
+                expected = model.apply(op);
+                actual = outcome(() -> apply(game, op));
+            } // if
+            counts[1]++;
+            if (expected instanceof Class<?>) {
+                counts[2]++;
+            } // if
+            if (!Objects.equals(expected, actual)) {
+                return "%s: expected %s, got %s".formatted(op, describe(expected),
+                        describe(actual));
+            } // if
+            if (model == null) {
+                return null;
+            } // if
+            if (before != GamePhase.OVER && model.phase == GamePhase.OVER) {
+                counts[model.isLastDropFour() ? 3 : 4]++;
+            } // if
+            boolean mutator = op.call() == Call.NEW || op.call() == Call.SET_TOKENS
+                    || op.call() == Call.DROP || op.call() == Call.UNDO;
+            String diff = compareState(mutator);
+            return diff == null ? null : op + ": then " + diff;
+        } // step
+
+        /**
+         * Compare everything the engine lets a caller observe with the model. Only the phase
+         * is compared after queries: the rest cannot have changed unless the phase did too, or
+         * the next call that may change the grid shows it.
+         *
+         * @param full whether to compare the getters, every cell and every column as well
+         * @return the first difference, or {@code null} if there was none
+         */
+        private String compareState(boolean full) {
+            if (game.getPhase() != model.phase) {
+                return "getPhase() should be " + model.phase + ", is " + game.getPhase();
+            } else if (!full) {
+                return null;
+            } // if
+            boolean played = model.phase == GamePhase.PLAYABLE || model.phase == GamePhase.OVER;
+            Object none = IllegalStateException.class;
+            Object[][] checks = {
+                {"getNumDropped()", played ? model.numDropped : none,
+                    outcome(game::getNumDropped)},
+                {"getLastDropRow()", played ? model.lastDropRow() : none,
+                    outcome(game::getLastDropRow)},
+                {"getLastDropCol()", played ? model.lastDropCol() : none,
+                    outcome(game::getLastDropCol)},
+                {"isLastDropConnectFour()", model.isLastDropFour(),
+                    outcome(game::isLastDropConnectFour)},
+                {"getPlayerToken(0)", model.apply(new Op(Call.PLAYER_TOKEN, 0, 0)),
+                    outcome(() -> game.getPlayerToken(0))},
+                {"getPlayerToken(1)", model.apply(new Op(Call.PLAYER_TOKEN, 1, 0)),
+                    outcome(() -> game.getPlayerToken(1))},
+            };
+            for (Object[] check : checks) {
+                if (!Objects.equals(check[1], check[2])) {
+                    return "%s should be %s, is %s".formatted(check[0], describe(check[1]),
+                            describe(check[2]));
+                } // if
+            } // for
+            for (int col = 0; col < model.cols; col++) {
+                for (int row = 0; row < model.rows; row++) {
+                    if (game.getTokenAt(row, col) != model.grid[row][col]) {
+                        return "getTokenAt(%d, %d) should be %s, is %s".formatted(row, col,
+                                model.grid[row][col], game.getTokenAt(row, col));
+                    } // if
+                } // for
+                if (game.isColumnFull(col) != (model.grid[0][col] != null)) {
+                    return "isColumnFull(%d) should be %b".formatted(col,
+                            model.grid[0][col] != null);
+                } // if
+            } // for
+            return null;
+        } // compareState
+
+        /**
+         * Make a call other than {@code NEW} on the engine.
+         *
+         * @param game the engine
+         * @param op the call
+         * @return the return value, or {@code VOID}
+         */
+        private static Object apply(ConnectFour game, Op op) {
+            switch (op.call()) {
+            case SET_TOKENS -> game.setPlayerTokens(token(op.a()), token(op.b()));
+            case DROP -> game.dropToken(op.a(), op.b());
+            case UNDO -> game.undoLastDrop();
+            case TOKEN_AT -> {
+                return game.getTokenAt(op.a(), op.b());
+            }
+            case COLUMN_FULL -> {
+                return game.isColumnFull(op.a());
+            }
+            case PLAYER_TOKEN -> {
+                return game.getPlayerToken(op.a());
+            }
+            default -> throw new IllegalArgumentException("Bad argument: " + op);
+            } // switch
+            return VOID;
+        } // apply
+
+    } // Pair
+
+    /**
+     * The model: the {@code ConnectFour} contract written out as plainly as possible, with none
+     * of the engine's bitboards, tables or incremental state. Rows count from the top, as in
+     * the API.
+     */
+    private static final class Reference {
+
+        /** The grid size. */
+        private final int rows;
+
+        /** The grid size. */
+        private final int cols;
+
+        /** The tokens in the grid, {@code null} for empty cells. */
+        private final Token[][] grid;
+
+        /** The players' tokens. */
+        private final Token[] player = new Token[2];
+
+        /** The column of every drop, oldest first. */
+        private final int[] dropCols;
+
+        /** The number of tokens in the grid. */
+        private int numDropped;
+
+        /** The game phase. */
+        private GamePhase phase = GamePhase.NEW;
+
+        /**
+         * Construct an empty model.
+         *
+         * @param rows the number of rows
+         * @param cols the number of columns
+         */
+        private Reference(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            this.grid = new Token[rows][cols];
+            this.dropCols = new int[rows * cols];
+        } // Reference
+
+        /**
+         * Make a call other than {@code NEW}, as the documentation of {@code ConnectFour}
+         * says it behaves.
+         *
+         * @param op the call
+         * @return the return value, {@code VOID}, or the class of the exception to expect
+         */
+        private Object apply(Op op) {
+            boolean played = phase == GamePhase.PLAYABLE || phase == GamePhase.OVER;
+            switch (op.call()) {
+            case SET_TOKENS -> {
+                if (op.a() < 0 || op.b() < 0) {
+                    return NullPointerException.class;
+                } else if (played) {
+                    return IllegalStateException.class;
+                } else if (op.a() == op.b()) {
+                    return IllegalArgumentException.class;
+                } // if
+                player[0] = token(op.a());
+                player[1] = token(op.b());
+                phase = GamePhase.READY;
+            }
+            case DROP -> {
+                int col = op.b();
+                if (col < 0 || col >= cols) {
+                    return IndexOutOfBoundsException.class;
+                } else if (op.a() != 0 && op.a() != 1) {
+                    return IllegalArgumentException.class;
+                } else if (phase == GamePhase.NEW || phase == GamePhase.OVER
+                        || grid[0][col] != null) {
+                    return IllegalStateException.class;
+                } // if
+                int row = rows - 1;
+                while (grid[row][col] != null) {
+                    row--;
+                } // while
+                grid[row][col] = player[op.a()];
+                dropCols[numDropped++] = col;
+                phase = isLastDropFour() || numDropped == rows * cols ? GamePhase.OVER
+                        : GamePhase.PLAYABLE;
+            }
+            case UNDO -> {
+                if (numDropped == 0) {
+                    return IllegalStateException.class;
+                } // if
+                grid[lastDropRow()][lastDropCol()] = null;
+                numDropped--;
+                phase = numDropped == 0 ? GamePhase.READY : GamePhase.PLAYABLE;
+            }
+            case TOKEN_AT -> {
+                if (op.a() < 0 || op.a() >= rows || op.b() < 0 || op.b() >= cols) {
+                    return IndexOutOfBoundsException.class;
+                } // if
+                return grid[op.a()][op.b()];
+            }
+            case COLUMN_FULL -> {
+                if (op.a() < 0 || op.a() >= cols) {
+                    return IndexOutOfBoundsException.class;
+                } // if
+                return grid[0][op.a()] != null;
+            }
+            case PLAYER_TOKEN -> {
+                if (op.a() != 0 && op.a() != 1) {
+                    return IllegalArgumentException.class;
+                } else if (phase == GamePhase.NEW) {
+                    return IllegalStateException.class;
+                } // if
+                return player[op.a()];
+            }
+            default -> throw new IllegalArgumentException("Bad argument: " + op);
+            } // switch
+            return VOID;
+        } // apply
+
+        /**
+         * Return the column of the last drop.
+         *
+         * @return the column, or {@code -1} if the grid is empty
+         */
+        private int lastDropCol() {
+            return numDropped == 0 ? -1 : dropCols[numDropped - 1];
+        } // lastDropCol
+
+        /**
+         * Return the row of the last drop: the top token of its column.
+         *
+         * @return the row, or {@code -1} if the grid is empty
+         */
+        private int lastDropRow() {
+            if (numDropped == 0) {
+                return -1;
+            } // if
+            int row = 0;
+            while (grid[row][lastDropCol()] == null) {
+                row++;
+            } // while
+            return row;
+        } // lastDropRow
+
+        /**
+         * Return whether the last token dropped is part of a four-in-a-row.
+         *
+         * @return {@code true} if it is
+         */
+        private boolean isLastDropFour() {
+            if (numDropped == 0) {
+                return false;
+            } // if
+            int row = lastDropRow();
+            int col = lastDropCol();
+            int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+            for (int[] d : directions) {
+                for (int back = 0; back < 4; back++) { // windows of four covering the drop
+                    int r = row - back * d[0];
+                    int c = col - back * d[1];
+                    if (isFour(r, c, d[0], d[1])) {
+                        return true;
+                    } // if
+                } // for
+            } // for
+            return false;
+        } // isLastDropFour
+
+        /**
+         * Return whether the four cells from {@code (row, col)} in steps of {@code (dr, dc)}
+         * are all in the grid and hold the same token.
+         *
+         * @param row the first cell's row
+         * @param col the first cell's column
+         * @param dr the row step
+         * @param dc the column step
+         * @return {@code true} if they are a four-in-a-row
+         */
+        private boolean isFour(int row, int col, int dr, int dc) {
+            int lastRow = row + 3 * dr;
+            int lastCol = col + 3 * dc;
+            if (row < 0 || row >= rows || lastRow < 0 || lastRow >= rows || col < 0
+                    || col >= cols || lastCol < 0 || lastCol >= cols
+                    || grid[row][col] == null) {
+                return false;
+            } // if
+            for (int i = 1; i < 4; i++) {
+                if (grid[row + i * dr][col + i * dc] != grid[row][col]) {
+                    return false;
+                } // if
+            } // for
+            return true;
+        } // isFour
+
+    } // Reference
+
+    /**
+     * Fuzz the engine from the command line and print the summary. The exit status is
+     * {@code 1} if a mismatch was found.
+     *
+     * <pre>
+     * java cs1001.game.ConnectFourFuzzer [games [threads [seed]]]
+     * </pre>
+     *
+     * <p>
+     * Defaults are one million games, one thread per available processor and seed {@code 0}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        Summary summary = run(games, threads, seed);
+        System.out.println(summary);
+        if (summary.failure() != null) {
+            System.exit(1);
+        } // if
+    } // main
+
+} // ConnectFourFuzzer
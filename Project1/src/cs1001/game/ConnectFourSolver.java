@@ -0,0 +1,402 @@
+package cs1001.game;
+
+import java.io.FileNotFoundException;
+import cs1302.gameutil.GamePhase;
+
+/**
+ * A perfect-play solver for {@link cs1001.game.ConnectFour} positions. The solver runs an
+ * alpha-beta negamax search over a private copy of the game's bitboard, trying center columns
+ * first, and returns the game-theoretic score of the position together with a best column. All
+ * grid sizes accepted by the {@code ConnectFour} constructor are supported.
+ *
+ * <p>
+ * Searched positions are cached in a {@link cs1001.game.TranspositionTable}, so a position
+ * reached again through a different move order is answered from the table, and the best
+ * column found for it earlier is tried first. Pass the same table to several calls of
+ * {@link #solve(ConnectFour, TranspositionTable)} to reuse results across positions. Late in
+ * a game, an {@link cs1001.game.EndgameTable} built for it answers every position it covers
+ * with one lookup.
+ *
+ * <p>
+ * Scores are from the point of view of the player to move (see {@link #solve}):
+ * <ul>
+ * <li>{@code 0} means the game is a draw with perfect play;</li>
+ * <li>a positive score means the player to move wins: if the winning token is dropped when
+ * {@code n} tokens are already on the grid, the score is {@code (rows * cols + 1 - n) / 2}, so
+ * faster wins score higher;</li>
+ * <li>a negative score means the player to move loses, by the same measure for the
+ * opponent.</li>
+ * </ul>
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * ConnectFourSolver.Result result = ConnectFourSolver.solve(game);
+ * game.dropToken(player, result.bestCol());
+ * </pre>
+ */
+public class ConnectFourSolver {
+
+    private final BitBoard board; // position being searched; moves are made and unmade in place
+    private final int size; // number of cells in the grid
+    private final int[] order; // columns in the order they are searched: center first
+    private final TranspositionTable table; // cache of searched positions
+    private final EndgameTable endgame; // solved endgame positions, or null
+    private long nodes; // number of positions visited
+    private long cutoffs; // beta cutoffs, counted only when EngineMetrics is enabled
+    private long winChecks; // win checks, counted only when EngineMetrics is enabled
+
+    /**
+     * Constructs a solver that searches {@code board} in place.
+     *
+     * @param board the position to search (owned by the solver from now on)
+     * @param table the transposition table to read and fill
+     */
+    ConnectFourSolver(BitBoard board, TranspositionTable table) {
+        this(board, table, null);
+    } // ConnectFourSolver
+
+    /**
+     * Constructs a solver that searches {@code board} in place and answers positions covered by
+     * {@code endgame} from it.
+     *
+     * @param board the position to search (owned by the solver from now on)
+     * @param table the transposition table to read and fill
+     * @param endgame the endgame table for the board's grid size, or {@code null}
+     */
+    ConnectFourSolver(BitBoard board, TranspositionTable table, EndgameTable endgame) {
+        this.board = board;
+        this.size = board.rows * board.cols;
+        this.order = centerFirst(board.cols);
+        this.table = table;
+        this.endgame = endgame;
+        this.nodes = 0;
+    } // ConnectFourSolver
+
+    /**
+     * The outcome of a solve.
+     *
+     * @param score the game-theoretic score for the player to move (see the class description)
+     * @param bestCol a column that achieves {@code score}
+     * @param nodes the number of positions searched
+     * @param nanos the wall-clock time the search took, in nanoseconds
+     */
+    public record Result(int score, int bestCol, long nodes, long nanos) {
+
+        /**
+         * Return the search speed.
+         *
+         * @return positions searched per second
+         */
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        } // nodesPerSecond
+
+    } // Result
+
+    /**
+     * Solve the position in {@code game} for the player expected to drop next, i.e., the
+     * opponent of whoever made the last drop (the first player if no token has been dropped
+     * yet). The game itself is not modified. A new transposition table with the
+     * {@linkplain cs1001.game.TranspositionTable#DEFAULT_BYTES default} budget is used.
+     *
+     * @param game the game to solve
+     * @return the score and a best column for the player to move
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public static Result solve(ConnectFour game) {
+        return solve(game, new TranspositionTable());
+    } // solve
+
+    /**
+     * Solve the position in {@code game} like {@link #solve(ConnectFour)}, caching searched
+     * positions in {@code table}. Entries already in the table are reused if they are for the
+     * same grid size; a table last used for another size is cleared first, since its keys do
+     * not tell grid sizes apart.
+     *
+     * @param game the game to solve
+     * @param table the transposition table to use
+     * @return the score and a best column for the player to move
+     * @throws NullPointerException if {@code game} or {@code table} is {@code null}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public static Result solve(ConnectFour game, TranspositionTable table) {
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: There is nothing to solve once the game is over.");
+        } // if
+        if (table == null) {
+            throw new NullPointerException(
+                    "Null argument(s): The transposition table can't be null.");
+        } // if
+        table.useFor(game.getRows(), game.getCols());
+        return new ConnectFourSolver(game.copyBoard(), table).solve(game.nextPlayer());
+    } // solve
+
+    /**
+     * Solve the position in {@code game} like {@link #solve(ConnectFour, TranspositionTable)},
+     * answering every position covered by {@code endgame} (including, possibly, the position
+     * itself) from the endgame table instead of searching it.
+     *
+     * @param game the game to solve
+     * @param table the transposition table to use
+     * @param endgame the endgame table
+     * @return the score and a best column for the player to move
+     * @throws NullPointerException if an argument is {@code null}
+     * @throws IllegalArgumentException if {@code endgame} is for another grid size
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public static Result solve(ConnectFour game, TranspositionTable table,
+            EndgameTable endgame) {
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: There is nothing to solve once the game is over.");
+        } // if
+        if (table == null || endgame == null) {
+            throw new NullPointerException(
+                    "Null argument(s): Neither table can be null.");
+        } // if
+        if (endgame.getRows() != game.getRows() || endgame.getCols() != game.getCols()) {
+            throw new IllegalArgumentException(
+                    "Bad argument: The endgame table is for %dx%d grids.".formatted(
+                    endgame.getRows(), endgame.getCols()));
+        } // if
+        table.useFor(game.getRows(), game.getCols());
+        return new ConnectFourSolver(game.copyBoard(), table, endgame)
+                .solve(game.nextPlayer());
+    } // solve
+
+    /**
+     * Solve the board for {@code player}. The board is left as it was found.
+     *
+     * @param player the player to move ({@code 0} or {@code 1})
+     * @return the score and a best column for {@code player}
+     */
+    Result solve(int player) {
+        long start = System.nanoTime();
+        this.nodes = 1; // the counters are per solve: EngineMetrics.searched adds them up
+        this.cutoffs = 0;
+        this.winChecks = 0;
+        int moves = this.board.count;
+        int bestCol = -1;
+        int best;
+        long slot = probeEndgame(player);
+        int winCol = slot != 0 ? -1 : winningDrop(player);
+        if (slot != 0) {
+            bestCol = EndgameTable.bestCol(slot);
+            best = EndgameTable.score(slot);
+        } else if (winCol >= 0) {
+            bestCol = winCol;
+            best = (this.size + 1 - moves) / 2;
+        } else {
+            int alpha = -this.size; // below any possible score
+            int beta = this.size; // above any possible score
+            best = alpha - 1;
+            for (int col : this.order) {
+                if (this.board.isFull(col)) {
+                    continue;
+                } // if
+                this.board.drop(player, col);
+                int score = -negamax(1 - player, -beta, -Math.max(alpha, best));
+                this.board.undo(col);
+                if (score > best) {
+                    best = score;
+                    bestCol = col;
+                } // if
+            } // for
+            this.table.store(TranspositionTable.keyLo(this.board, player),
+                    TranspositionTable.keyHi(this.board, player), this.size - moves,
+                    TranspositionTable.EXACT, best, bestCol);
+        } // if
+        long nanos = System.nanoTime() - start;
+        if (EngineMetrics.ENABLED) {
+            EngineMetrics.searched(this.nodes, this.cutoffs, this.winChecks, nanos);
+        } // if
+        return new Result(best, bestCol, this.nodes, nanos);
+    } // solve
+
+    /**
+     * Return the score of the board for {@code player} if it lies inside the window
+     * {@code (alpha, beta)}; otherwise return a bound on the score on the same side of the
+     * window as the true score.
+     *
+     * @param player the player to move
+     * @param alpha the score {@code player} is already guaranteed elsewhere
+     * @param beta the score the opponent is already guaranteed elsewhere (negated)
+     * @return the (bounded) score for {@code player}
+     */
+    int negamax(int player, int alpha, int beta) {
+        this.nodes++;
+        int moves = this.board.count;
+        if (moves == this.size) {
+            return 0; // grid full: draw
+        } // if
+        long slot = probeEndgame(player);
+        if (slot != 0) {
+            return EndgameTable.score(slot);
+        } // if
+        if (winningDrop(player) >= 0) {
+            return (this.size + 1 - moves) / 2;
+        } // if
+        // no win on this drop, so the best possible outcome is a win on our next drop
+        int max = (this.size - 1 - moves) / 2;
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) {
+                return beta;
+            } // if
+        } // if
+        long keyLo = TranspositionTable.keyLo(this.board, player);
+        long keyHi = TranspositionTable.keyHi(this.board, player);
+        long entry = this.table.probe(keyLo, keyHi);
+        int alphaOrig = alpha;
+        int firstCol = -1; // best column from an earlier search of this position
+        if (entry != 0) {
+            int value = TranspositionTable.value(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT) {
+                return value;
+            } else if (bound == TranspositionTable.LOWER) {
+                alpha = Math.max(alpha, value);
+            } else {
+                beta = Math.min(beta, value);
+            } // if
+            if (alpha >= beta) {
+                return value;
+            } // if
+            firstCol = TranspositionTable.bestCol(entry);
+        } // if
+        int depth = this.size - moves;
+        int bestCol = -1;
+        for (int i = -1; i < this.order.length; i++) {
+            int col = i < 0 ? firstCol : this.order[i];
+            if (col < 0 || (i >= 0 && col == firstCol) || this.board.isFull(col)) {
+                continue;
+            } // if
+            this.board.drop(player, col);
+            int score = -negamax(1 - player, -beta, -alpha);
+            this.board.undo(col);
+            if (score >= beta) { // cutoff: the opponent will avoid this line
+                if (EngineMetrics.ENABLED) {
+                    this.cutoffs++;
+                } // if
+                this.table.store(keyLo, keyHi, depth, TranspositionTable.LOWER, score, col);
+                return score;
+            } // if
+            if (score > alpha) {
+                alpha = score;
+                bestCol = col;
+            } // if
+        } // for
+        int bound = alpha > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        this.table.store(keyLo, keyHi, depth, bound, alpha, bestCol);
+        return alpha;
+    } // negamax
+
+    /**
+     * Look the board up in the endgame table, if there is one and it covers this many empty
+     * cells.
+     *
+     * @param player the player to move
+     * @return the table's slot for the board (see {@link cs1001.game.EndgameTable#probe}), or
+     *         {@code 0}
+     */
+    private long probeEndgame(int player) {
+        if (this.endgame == null || this.size - this.board.count > this.endgame.getEmpties()) {
+            return 0;
+        } // if
+        return this.endgame.probe(TranspositionTable.keyLo(this.board, player),
+                TranspositionTable.keyHi(this.board, player));
+    } // probeEndgame
+
+    /**
+     * Return the number of positions visited by this solver since its last solve started.
+     *
+     * @return the node count
+     */
+    long nodes() {
+        return this.nodes;
+    } // nodes
+
+    /**
+     * Return the number of beta cutoffs since this solver's last solve started, if
+     * {@link cs1001.game.EngineMetrics} is enabled.
+     *
+     * @return the cutoff count, or {@code 0} if metrics are off
+     */
+    long cutoffs() {
+        return this.cutoffs;
+    } // cutoffs
+
+    /**
+     * Return the number of win checks since this solver's last solve started, if
+     * {@link cs1001.game.EngineMetrics} is enabled.
+     *
+     * @return the win-check count, or {@code 0} if metrics are off
+     */
+    long winChecks() {
+        return this.winChecks;
+    } // winChecks
+
+    /**
+     * Return a column in which {@code player} would win immediately, or {@code -1}.
+     *
+     * @param player the player to move
+     * @return a winning column, or {@code -1} if there is none
+     */
+    int winningDrop(int player) {
+        for (int col : this.order) {
+            if (this.board.isFull(col)) {
+                continue;
+            } // if
+            if (EngineMetrics.ENABLED) {
+                this.winChecks++;
+            } // if
+            if (this.board.isWinningDrop(player, col)) {
+                return col;
+            } // if
+        } // for
+        return -1;
+    } // winningDrop
+
+    /**
+     * Return the column indices of a {@code cols}-wide grid ordered from the center outwards
+     * (e.g., {@code 3 2 4 1 5 0 6} for seven columns). Center columns take part in more
+     * four-cell windows, so trying them first produces cutoffs sooner.
+     *
+     * @param cols the number of grid columns
+     * @return the center-first column order
+     */
+    static int[] centerFirst(int cols) {
+        int[] order = new int[cols];
+        for (int i = 0; i < cols; i++) {
+            order[i] = cols / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+        } // for
+        return order;
+    } // centerFirst
+
+    /**
+     * Solve the game described by a file (see {@link cs1001.game.ConnectFour#fromFile}) and
+     * print the score, best column, search speed and transposition table statistics.
+     *
+     * @param args the path to the game file
+     * @throws FileNotFoundException if the file cannot be found
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length != 1) {
+            System.out.println("Usage: java cs1001.game.ConnectFourSolver <game file>");
+            return;
+        } // if
+        TranspositionTable table = new TranspositionTable();
+        Result result = solve(ConnectFour.fromFile(args[0]), table);
+        System.out.printf("score: %d\nbest column: %d\nnodes: %d\ntime: %.3f s\n"
+                + "nodes/s: %.0f\n%s\n", result.score(), result.bestCol(), result.nodes(),
+                result.nanos() / 1e9, result.nodesPerSecond(), table);
+    } // main
+
+} // ConnectFourSolver
@@ -1,6 +1,9 @@
 package cs1001.game;
 
+import java.util.List;
 import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
 import cs1302.gameutil.Token;
 import cs1302.gameutil.GamePhase;
 
@@ -46,6 +49,12 @@ public class ConnectFourTester {
         testGetRows();
         testGetCols();
         testIsInBounds();
+        testUndoLastDrop();
+        testSnapshot();
+        testCanonicalKey();
+        testSolver();
+        testConnectK();
+        testBatchBoards();
         testGamePlay();
         testFullBoard();
         testNoStatic();
@@ -612,6 +621,350 @@ public class ConnectFourTester {
 
     } // testNoStatic
 
+    // ----------------------------------------------------------------------------------------------
+    // TEST UNDO LAST DROP
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * Plays a game until the first player wins, then takes every drop back with
+     * {@code undoLastDrop}. After each undo, the grid, {@code getNumDropped},
+     * {@code getLastDropRow}, {@code getLastDropCol} and {@code getPhase} must be
+     * what they were before that drop. Taking back a drop from an empty grid must
+     * throw an {@code IllegalStateException}.
+     */
+    public static void testUndoLastDrop() {
+        header("testUndoLastDrop");
+        int[] cols = {0, 0, 1, 1, 2, 2, 6, 6, 3}; // player 0 wins on the last drop
+        ConnectFour game = newValidGame(6, 7);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        int[] rows = new int[cols.length];
+        for (int i = 0; i < cols.length; i++) {
+            game.dropToken(i % 2, cols[i]);
+            rows[i] = game.getLastDropRow();
+        } // for
+        if (game.getPhase() != GamePhase.OVER) {
+            fail("testUndoLastDrop: the game should be won by the last drop.", game);
+        } // if
+        for (int i = cols.length - 1; i >= 0; i--) {
+            game.undoLastDrop();
+            if (game.getTokenAt(rows[i], cols[i]) != null) {
+                fail("testUndoLastDrop: undone token is still in the grid.", game);
+            } // if
+            if (i == 0) {
+                if (game.getPhase() != GamePhase.READY) {
+                    fail("testUndoLastDrop: phase should be READY once the grid is empty.");
+                } // if
+                pass("testUndoLastDrop: grid is empty and the phase is READY again.");
+                break;
+            } // if
+            if (game.getPhase() != GamePhase.PLAYABLE || game.getNumDropped() != i
+                    || game.getLastDropRow() != rows[i - 1]
+                    || game.getLastDropCol() != cols[i - 1]
+                    || game.getTokenAt(rows[i - 1], cols[i - 1])
+                    != game.getPlayerToken((i - 1) % 2)) {
+                fail("testUndoLastDrop: wrong state after taking back drop " + (i + 1), game);
+            } // if
+            pass("testUndoLastDrop: state restored after taking back drop " + (i + 1));
+        } // for
+        try {
+            game.undoLastDrop();
+            fail("testUndoLastDrop: taking back a drop from an empty grid should throw.");
+        } catch (IllegalStateException ise) {
+            pass("testUndoLastDrop: taking back a drop from an empty grid throws.");
+        } // try
+        game.dropToken(0, 6); // the game is playable again
+        if (game.getNumDropped() != 1 || game.getLastDropCol() != 6) {
+            fail("testUndoLastDrop: drops after taking everything back are wrong.", game);
+        } // if
+        pass("testUndoLastDrop: tokens can be dropped again after taking drops back.");
+    } // testUndoLastDrop
+
+    // ----------------------------------------------------------------------------------------------
+    // TEST SNAPSHOT
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * Checks that a {@code Position} from {@code snapshot} matches the game, is not
+     * changed by later drops, and that {@code child} gives the same position as a
+     * drop followed by a new snapshot.
+     */
+    public static void testSnapshot() {
+        header("testSnapshot");
+        ConnectFour game = newValidGame(6, 7);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        game.dropToken(0, 3);
+        game.dropToken(1, 3);
+        Position before = game.snapshot();
+        if (before.getNumDropped() != 2 || before.getNextPlayer() != 0
+                || before.getPlayerAt(5, 3) != 0 || before.getPlayerAt(4, 3) != 1
+                || before.getPlayerAt(3, 3) != -1) {
+            fail("testSnapshot: snapshot does not match the game.", game);
+        } // if
+        pass("testSnapshot: snapshot matches the game.");
+        Position child = before.child(4);
+        game.dropToken(0, 4);
+        if (before.getNumDropped() != 2 || before.getPlayerAt(5, 4) != -1) {
+            fail("testSnapshot: snapshot changed after a drop.", game);
+        } // if
+        pass("testSnapshot: snapshot is unchanged by later drops.");
+        Position after = game.snapshot();
+        if (!child.equals(after) || child.hashCode() != after.hashCode()
+                || child.equals(before)) {
+            fail("testSnapshot: child(4) should equal the snapshot after dropping in 4.", game);
+        } // if
+        pass("testSnapshot: child gives the same position as dropToken.");
+    } // testSnapshot
+
+    // ----------------------------------------------------------------------------------------------
+    // TEST CANONICAL KEY
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * Plays a game and its mirror image and checks that they share a canonical key, and that
+     * columns translate between each game and the canonical position.
+     */
+    public static void testCanonicalKey() {
+        header("testCanonicalKey");
+        ConnectFour game = newValidGame(6, 7);
+        ConnectFour mirror = newValidGame(6, 7);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        mirror.setPlayerTokens(Token.RED, Token.BLUE);
+        int[] moves = {3, 4, 4, 0, 6};
+        for (int i = 0; i < moves.length; i++) {
+            game.dropToken(i % 2, moves[i]);
+            mirror.dropToken(i % 2, 6 - moves[i]);
+        } // for
+        if (!game.snapshot().mirror().equals(mirror.snapshot())) {
+            fail("testCanonicalKey: mirror() does not match the mirrored game.", game);
+        } // if
+        pass("testCanonicalKey: mirror() matches the mirrored game.");
+        if (!game.canonicalKey().equals(mirror.canonicalKey())
+                || game.canonicalKey().equals(game.snapshot().child(1).canonical())) {
+            fail("testCanonicalKey: a game and its mirror image should share one key.", game);
+        } // if
+        pass("testCanonicalKey: a game and its mirror image share one key.");
+        int col = game.snapshot().canonicalColumn(1);
+        int mirrorCol = mirror.snapshot().canonicalColumn(5);
+        Position viaKey = game.canonicalKey().child(col).canonical();
+        if (col != mirrorCol || !viaKey.equals(game.snapshot().child(1).canonical())) {
+            fail("testCanonicalKey: canonicalColumn does not translate moves.", game);
+        } // if
+        pass("testCanonicalKey: canonicalColumn translates moves both ways.");
+    } // testCanonicalKey
+
+    // ----------------------------------------------------------------------------------------------
+    // TEST SOLVER
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * Solves positions with known values: an immediate win, a forced loss against two threats,
+     * and a draw with one empty cell left. Then checks that a transposition table filled by one
+     * solve answers the same position again, but not the same tokens on a wider grid, and that
+     * {@code ParallelSolver} agrees with {@code ConnectFourSolver} on a mid-game position.
+     */
+    public static void testSolver() {
+        header("testSolver");
+        ConnectFour win = playedGame(6, 7, 0, 0, 1, 1, 2, 2); // 0 to move, wins in column 3
+        ConnectFourSolver.Result result = ConnectFourSolver.solve(win);
+        if (result.score() != (42 + 1 - 6) / 2 || result.bestCol() != 3) {
+            fail("testSolver: expected score 18 in column 3, got " + result, win);
+        } // if
+        pass("testSolver: an immediate win scores (size + 1 - moves) / 2 in its column.");
+        ConnectFour loss = playedGame(6, 7, 1, 1, 2, 2, 3); // 0 threatens columns 0 and 4
+        result = ConnectFourSolver.solve(loss);
+        if (result.score() != -(42 + 1 - 7) / 2) {
+            fail("testSolver: expected score -18 against two threats, got " + result, loss);
+        } // if
+        pass("testSolver: blocking one of two threats still loses on the next drop.");
+        ConnectFour draw = newValidGame(6, 8);
+        draw.setPlayerTokens(Token.RED, Token.BLUE);
+        int player = 0;
+        for (int i = 0; i < 6 * 8 - 1; i++) { // the pattern of testFullBoard, but one short
+            draw.dropToken(player, i % 8);
+            player = 1 - player;
+            if (i % 24 == 23) {
+                player = 1 - player;
+            } // if
+        } // for
+        result = ConnectFourSolver.solve(draw);
+        if (result.score() != 0 || result.bestCol() != 7) {
+            fail("testSolver: expected a draw in column 7, got " + result, draw);
+        } // if
+        pass("testSolver: the last drop into a full grid without a four is a draw.");
+        ConnectFour demo = EndgameTable.demoGame();
+        TranspositionTable table = new TranspositionTable();
+        ConnectFourSolver.Result first = ConnectFourSolver.solve(demo, table);
+        ConnectFourSolver.Result again = ConnectFourSolver.solve(demo, table);
+        if (again.score() != first.score() || again.nodes() >= first.nodes()) {
+            fail("testSolver: a filled table should answer with the same score in fewer nodes, "
+                    + "got " + first + " then " + again, demo);
+        } // if
+        pass("testSolver: a reused transposition table gives the same score faster.");
+        int[] moves = {1, 1, 2, 0, 4, 3, 2, 2, 4, 6, 4, 6, 0, 1, 0, 1, 5, 2, 1, 4, 6, 5, 6, 6, 6};
+        ConnectFour narrow = playedGame(6, 7, moves);
+        ConnectFour wide = playedGame(6, 8, moves); // same stride: the same keys as narrow
+        TranspositionTable shared = new TranspositionTable();
+        ConnectFourSolver.solve(narrow, shared);
+        result = ConnectFourSolver.solve(wide, shared);
+        if (result.score() != ConnectFourSolver.solve(wide).score()) {
+            fail("testSolver: a table used for 6x7 gave " + result + " on 6x8", wide);
+        } // if
+        pass("testSolver: a table moved to another grid size gives that size's scores.");
+        List<BatchAnalyzer.Analysis> analyses = BatchAnalyzer.analyzeAll(
+                Stream.of(narrow.snapshot(), wide.snapshot()), 1).toList(); // one worker, table
+        for (BatchAnalyzer.Analysis analysis : analyses) {
+            ConnectFour game = analysis.position().getCols() == 7 ? narrow : wide;
+            if (analysis.score() != ConnectFourSolver.solve(game).score()) {
+                fail("testSolver: BatchAnalyzer gave " + analysis + " in a mixed stream", game);
+            } // if
+        } // for
+        pass("testSolver: BatchAnalyzer labels a stream of mixed grid sizes correctly.");
+        ConnectFourSolver.Result parallel = ParallelSolver.solve(demo, new TranspositionTable(),
+                2);
+        if (parallel.score() != first.score()) {
+            fail("testSolver: ParallelSolver scored " + parallel + " but ConnectFourSolver "
+                    + first, demo);
+        } // if
+        demo.dropToken(demo.nextPlayer(), parallel.bestCol());
+        if (!demo.isLastDropConnectFour()
+                && -ConnectFourSolver.solve(demo).score() != parallel.score()) {
+            fail("testSolver: ParallelSolver's best column does not reach its score.", demo);
+        } // if
+        pass("testSolver: ParallelSolver agrees with ConnectFourSolver.");
+    } // testSolver
+
+    /**
+     * Return a new {@code rows}-by-{@code cols} game with {@code moves} dropped, players
+     * alternating from player {@code 0}.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param moves the columns to drop into
+     * @return the game
+     */
+    private static ConnectFour playedGame(int rows, int cols, int... moves) {
+        ConnectFour game = newValidGame(rows, cols);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        for (int i = 0; i < moves.length; i++) {
+            game.dropToken(i % 2, moves[i]);
+        } // for
+        return game;
+    } // playedGame
+
+    // ----------------------------------------------------------------------------------------------
+    // TEST CONNECT K
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * Checks the word-at-a-time run counting of {@link cs1001.game.ConnectK} where it can go
+     * wrong: runs that cross the boundary between two {@code long}s, horizontally and
+     * vertically, a run that ends at the edge of the grid, and taking back a winning drop.
+     */
+    public static void testConnectK() {
+        header("testConnectK");
+        for (int last : new int[] {60, 62, 65, 67}) { // cells 60..67 straddle words 0 and 1
+            ConnectK game = new ConnectK(2, 128, 8);
+            int other = 100;
+            for (int col = 60; col <= 67; col++) {
+                if (col != last) {
+                    game.dropToken(0, col);
+                    game.dropToken(1, other += 2); // spread out, so player 1 has no run
+                } // if
+            } // for
+            if (game.getWinner() != -1) {
+                fail("testConnectK: seven in a row should not win with k = 8\n" + game);
+            } // if
+            game.dropToken(0, last);
+            if (game.getWinner() != 0) {
+                fail("testConnectK: columns 60 to 67 should win when " + last
+                        + " is dropped last\n" + game);
+            } // if
+        } // for
+        pass("testConnectK: a horizontal run across bits 60 to 67 wins from any end or middle.");
+        ConnectK tall = new ConnectK(128, 2, 8);
+        for (int h = 0; h < 60; h++) { // alternate owners below height 60; 59 is player 1
+            tall.dropToken(h % 2, 0);
+        } // for
+        for (int h = 60; h < 67; h++) {
+            tall.dropToken(0, 0);
+            tall.dropToken(1, 1);
+        } // for
+        if (tall.getWinner() != -1) {
+            fail("testConnectK: heights 60 to 66 should not win with k = 8\n" + tall);
+        } // if
+        tall.dropToken(0, 0); // height 67: the run below crosses from word 1 into word 0
+        if (tall.getWinner() != 0) {
+            fail("testConnectK: heights 60 to 67 should win vertically\n" + tall);
+        } // if
+        pass("testConnectK: a vertical run across the 64-bit boundary wins.");
+        tall.undoLastDrop();
+        if (tall.getWinner() != -1 || tall.getPhase() != GamePhase.PLAYABLE
+                || tall.getPlayerAt(127 - 67, 0) != -1 || tall.nextPlayer() != 0) {
+            fail("testConnectK: undoing the winning drop should reopen the game\n" + tall);
+        } // if
+        tall.dropToken(1, 0);
+        tall.dropToken(0, 1);
+        if (tall.getWinner() != -1 || tall.getPlayerAt(127 - 67, 0) != 1) {
+            fail("testConnectK: the game should go on after the undo\n" + tall);
+        } // if
+        pass("testConnectK: undoLastDrop after a win clears the winner and the token.");
+        ConnectK edge = new ConnectK(2, 64, 8); // the row ends exactly at the end of a word
+        // player 0 owns row 1 from column 0: the word right after bit 63 of row 0
+        for (int col = 0; col < 7; col++) {
+            edge.dropToken(1, col);
+            edge.dropToken(0, col);
+        } // for
+        for (int col = 57; col < 64; col++) {
+            edge.dropToken(0, col);
+            if (col < 63) {
+                edge.dropToken(1, col - 20);
+            } // if
+        } // for
+        if (edge.getWinner() != -1) {
+            fail("testConnectK: the run from 57 to the edge at 63 is only seven long\n" + edge);
+        } // if
+        edge.dropToken(1, 30);
+        edge.dropToken(0, 56);
+        if (edge.getWinner() != 0) {
+            fail("testConnectK: the run from 56 to the edge at 63 should win\n" + edge);
+        } // if
+        if (ConnectK.runUp(new long[] {-1L, -1L}, 0, 60, 64, 7) != 4
+                || ConnectK.runDown(new long[] {-1L, -1L}, 0, 3, 7) != 4) {
+            fail("testConnectK: runs should stop at the edge of the grid");
+        } // if
+        pass("testConnectK: runs stop at the edge of the grid.");
+    } // testConnectK
+
+    // ----------------------------------------------------------------------------------------------
+    // TEST BATCH BOARDS
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * Plays the same seeded random games with the lockstep kernels of
+     * {@link cs1001.game.BatchBoards} and one {@code BitBoard} per game, on grids whose
+     * columns stay in the low word and grids that spill into the high word, and checks that
+     * fewer games than lanes are played exactly as asked.
+     */
+    public static void testBatchBoards() {
+        header("testBatchBoards");
+        int[][] sizes = {{6, 7}, {6, 9}, {9, 7}, {9, 9}};
+        for (int[] size : sizes) {
+            int differ = BatchBoards.compareKernels(1000, size[0], size[1], 7);
+            if (differ != 0) {
+                fail("testBatchBoards: " + differ + " of 1000 games differ on " + size[0] + "x"
+                        + size[1]);
+            } // if
+        } // for
+        pass("testBatchBoards: every kernel plays like BitBoard, mask for mask"
+                + (new BatchBoards(1, 6, 7).isVectorized() ? "." : " (vector kernel not loaded)."));
+        long[] results = BatchBoards.playRandom(64, 6, 7, true, 10, new SplittableRandom(1));
+        if (results[0] + results[1] + results[2] != 10) {
+            fail("testBatchBoards: 10 games on 64 lanes ended " + (results[0] + results[1]
+                    + results[2]) + " times");
+        } // if
+        pass("testBatchBoards: fewer games than lanes are each played once.");
+    } // testBatchBoards
+
     // ----------------------------------------------------------------------------------------------
     // TEST FULL BOARD
     // ----------------------------------------------------------------------------------------------
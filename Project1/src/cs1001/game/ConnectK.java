@@ -0,0 +1,424 @@
+package cs1001.game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import cs1302.gameutil.GamePhase;
+
+/**
+ * A generalized connect game for research simulations: {@code k} equal tokens in a row win,
+ * and the grid may be far larger than {@link cs1001.game.ConnectFour} allows (up to
+ * {@value #MAX_SIDE} rows and columns). Two players, {@code 0} and {@code 1}, drop tokens into
+ * columns as in Connect Four; there are no {@code Token} colors, so a game starts in the
+ * {@link cs1302.gameutil.GamePhase#READY} phase.
+ *
+ * <p>
+ * The grid is stored as bitsets in {@code long[]} arrays: for each player, one bitset per row
+ * (bit {@code col}) and one per column (bit {@code h}, the height counted from the bottom), so
+ * a game takes about four bits per cell plus a height per column and the move history, and no
+ * per-cell objects. A drop sets two bits. The win check after a drop only looks at the lines
+ * through the new token: horizontal and vertical runs are counted a word at a time with
+ * {@link Long#numberOfTrailingZeros}/{@link Long#numberOfLeadingZeros}, diagonal runs one cell at
+ * a time, and every run stops after {@code k - 1} cells. Drops and win checks therefore cost
+ * O({@code k}) however large the grid is.
+ *
+ * <p>
+ * Rows are numbered from the top, as in {@link cs1001.game.ConnectFour}.
+ *
+ * <pre>
+ * ConnectK game = new ConnectK(64, 64, 8);
+ * game.dropToken(0, 31);
+ * </pre>
+ */
+public final class ConnectK {
+
+    /** Largest number of rows or columns. */
+    public static final int MAX_SIDE = 1 << 15;
+
+    private final int rows; // number of grid rows
+    private final int cols; // number of grid columns
+    private final int k; // tokens in a row needed to win
+    private final int rowWords; // longs per row bitset
+    private final int colWords; // longs per column bitset
+    private final long[][] rowBits; // per player: bit col of row h at [h * rowWords + col / 64]
+    private final long[][] colBits; // per player: bit h of column col at [col * colWords + h / 64]
+    private final int[] height; // tokens in each column
+    private int[] history; // column of every drop, oldest first; grows as needed
+    private int numDropped; // number of tokens dropped so far
+    private int winner; // player who won, or -1
+
+    /**
+     * Constructs an empty {@code rows}-by-{@code cols} game in which {@code k} in a row wins.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param k the number of equal tokens in a row that wins
+     * @throws IllegalArgumentException if {@code rows} or {@code cols} is not in
+     *     {@code 1..MAX_SIDE}, or {@code k} is not in {@code 2..max(rows, cols)}
+     */
+    public ConnectK(int rows, int cols, int k) {
+        if (rows < 1 || rows > MAX_SIDE || cols < 1 || cols > MAX_SIDE) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Rows and columns must be between 1 and " + MAX_SIDE + ".");
+        } // if
+        if (k < 2 || k > Math.max(rows, cols)) {
+            throw new IllegalArgumentException(
+                    "Bad argument: k must be between 2 and the longer side of the grid.");
+        } // if
+        this.rows = rows;
+        this.cols = cols;
+        this.k = k;
+        this.rowWords = (cols + 63) >>> 6;
+        this.colWords = (rows + 63) >>> 6;
+        this.rowBits = new long[2][rows * this.rowWords];
+        this.colBits = new long[2][cols * this.colWords];
+        this.height = new int[cols];
+        this.history = new int[Math.min(rows * cols, 64)];
+        this.winner = -1;
+    } // ConnectK
+
+    /**
+     * Return the number of grid rows.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    } // getRows
+
+    /**
+     * Return the number of grid columns.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    } // getCols
+
+    /**
+     * Return the number of equal tokens in a row that wins.
+     *
+     * @return {@code k}
+     */
+    public int getK() {
+        return this.k;
+    } // getK
+
+    /**
+     * Return the number of tokens dropped so far.
+     *
+     * @return the number of tokens on the grid
+     */
+    public int getNumDropped() {
+        return this.numDropped;
+    } // getNumDropped
+
+    /**
+     * Return the current phase: {@code READY} before the first drop, {@code OVER} once a
+     * player has won or the grid is full, and {@code PLAYABLE} otherwise.
+     *
+     * @return the game phase
+     */
+    public GamePhase getPhase() {
+        if (this.winner >= 0 || this.numDropped == this.rows * this.cols) {
+            return GamePhase.OVER;
+        } // if
+        return this.numDropped == 0 ? GamePhase.READY : GamePhase.PLAYABLE;
+    } // getPhase
+
+    /**
+     * Return the player who has {@code k} in a row.
+     *
+     * @return {@code 0} or {@code 1} for the winner, or {@code -1} if nobody has won
+     */
+    public int getWinner() {
+        return this.winner;
+    } // getWinner
+
+    /**
+     * Return the player expected to drop next: the opponent of whoever dropped last, or
+     * {@code 0} before the first drop.
+     *
+     * @return {@code 0} or {@code 1}
+     */
+    public int nextPlayer() {
+        if (this.numDropped == 0) {
+            return 0;
+        } // if
+        int col = this.history[this.numDropped - 1];
+        return 1 - getPlayerAt(this.rows - this.height[col], col);
+    } // nextPlayer
+
+    /**
+     * Return the player whose token is at {@code (row, col)}.
+     *
+     * @param row the row index, counted from the top
+     * @param col the column index
+     * @return {@code 0} or {@code 1} for the owning player, or {@code -1} if the cell is empty
+     * @throws IndexOutOfBoundsException if the cell is not inside the grid
+     */
+    public int getPlayerAt(int row, int col) {
+        if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: (%d, %d) is not in the grid.".formatted(row, col));
+        } // if
+        int h = this.rows - 1 - row;
+        return has(0, h, col) ? 0 : has(1, h, col) ? 1 : -1;
+    } // getPlayerAt
+
+    /**
+     * Return whether column {@code col} is full.
+     *
+     * @param col the column index
+     * @return {@code true} if no more tokens fit in the column
+     * @throws IndexOutOfBoundsException if {@code col} is not a valid column index
+     */
+    public boolean isColumnFull(int col) {
+        checkColumn(col);
+        return this.height[col] == this.rows;
+    } // isColumnFull
+
+    /**
+     * Drop a token for {@code player} into column {@code col}, and end the game if it makes
+     * {@code k} in a row or fills the grid.
+     *
+     * @param player the player ({@code 0} or {@code 1})
+     * @param col the column index
+     * @return the row, counted from the top, where the token landed
+     * @throws IndexOutOfBoundsException if {@code col} is not a valid column index
+     * @throws IllegalArgumentException if {@code player} is neither {@code 0} nor {@code 1}
+     * @throws IllegalStateException if the game is over or the column is full
+     */
+    public int dropToken(int player, int col) {
+        checkColumn(col);
+        if (player != 0 && player != 1) {
+            throw new IllegalArgumentException("Bad argument: Player must be 0 or 1.");
+        } // if
+        if (getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: No drops are allowed once the game is over.");
+        } // if
+        if (this.height[col] == this.rows) {
+            throw new IllegalStateException("Illegal Argument: Sorry, column full!");
+        } // if
+        int h = this.height[col]++;
+        this.rowBits[player][h * this.rowWords + (col >>> 6)] |= 1L << col;
+        this.colBits[player][col * this.colWords + (h >>> 6)] |= 1L << h;
+        if (this.numDropped == this.history.length) {
+            this.history = Arrays.copyOf(this.history,
+                    (int) Math.min((long) this.rows * this.cols, 2L * this.history.length));
+        } // if
+        this.history[this.numDropped++] = col;
+        if (isWinAt(player, h, col)) {
+            this.winner = player;
+        } // if
+        return this.rows - 1 - h;
+    } // dropToken
+
+    /**
+     * Take back the most recent drop. The game is playable again afterwards, even if that
+     * drop had ended it.
+     *
+     * @throws IllegalStateException if no token has been dropped
+     */
+    public void undoLastDrop() {
+        if (this.numDropped == 0) {
+            throw new IllegalStateException("Wrong phase: There is no drop to take back.");
+        } // if
+        int col = this.history[--this.numDropped];
+        int h = --this.height[col];
+        int player = has(0, h, col) ? 0 : 1;
+        this.rowBits[player][h * this.rowWords + (col >>> 6)] &= ~(1L << col);
+        this.colBits[player][col * this.colWords + (h >>> 6)] &= ~(1L << h);
+        this.winner = -1; // no drop is allowed after a win, so nobody had won before this one
+    } // undoLastDrop
+
+    /**
+     * Return whether {@code player}'s token at height {@code h} in column {@code col} is part
+     * of {@code k} in a row.
+     *
+     * @param player the player
+     * @param h the token's height, counted from the bottom
+     * @param col the token's column index
+     * @return {@code true} if the token completes a win
+     */
+    private boolean isWinAt(int player, int h, int col) {
+        int need = this.k - 1; // others needed in a line through this token
+        long[] rowSet = this.rowBits[player];
+        int row = h * this.rowWords;
+        if (runUp(rowSet, row, col + 1, this.cols, need)
+                + runDown(rowSet, row, col - 1, need) >= need) {
+            return true; // horizontal
+        } // if
+        if (runDown(this.colBits[player], col * this.colWords, h - 1, need) >= need) {
+            return true; // vertical: nothing is above the new token
+        } // if
+        return diagonal(player, h, col, 1, 1) + diagonal(player, h, col, -1, -1) >= need
+                || diagonal(player, h, col, 1, -1) + diagonal(player, h, col, -1, 1) >= need;
+    } // isWinAt
+
+    /**
+     * Count {@code player}'s tokens next to {@code (h, col)} in one diagonal direction,
+     * stopping at {@code k - 1}.
+     *
+     * @param player the player
+     * @param h the start height
+     * @param col the start column index
+     * @param dh the height step ({@code 1} or {@code -1})
+     * @param dc the column step ({@code 1} or {@code -1})
+     * @return the run length, not counting the start cell
+     */
+    private int diagonal(int player, int h, int col, int dh, int dc) {
+        int n = 0;
+        for (int i = 1; i < this.k; i++) {
+            int hh = h + i * dh;
+            int cc = col + i * dc;
+            if (hh < 0 || hh >= this.rows || cc < 0 || cc >= this.cols
+                    || !has(player, hh, cc)) {
+                break;
+            } // if
+            n++;
+        } // for
+        return n;
+    } // diagonal
+
+    /**
+     * Return whether {@code player} has a token at height {@code h} in column {@code col}.
+     *
+     * @param player the player
+     * @param h the height, counted from the bottom
+     * @param col the column index
+     * @return {@code true} if the cell holds the player's token
+     */
+    private boolean has(int player, int h, int col) {
+        return (this.rowBits[player][h * this.rowWords + (col >>> 6)] >>> col & 1) != 0;
+    } // has
+
+    /**
+     * Count the set bits of a bitset starting at index {@code from} and going up, stopping at
+     * the first clear bit, at {@code limit}, or after {@code max} bits. Whole words are
+     * skipped with one {@link Long#numberOfTrailingZeros} each.
+     *
+     * @param bits the array holding the bitset
+     * @param base the index in {@code bits} of the bitset's first word
+     * @param from the first bit index to test
+     * @param limit the bitset's length in bits
+     * @param max the most bits to count
+     * @return the run length
+     */
+    static int runUp(long[] bits, int base, int from, int limit, int max) {
+        int end = Math.min(limit, from + max);
+        int i = from;
+        while (i < end) {
+            long word = bits[base + (i >>> 6)] >>> i; // bit i first; zeros shifted in on top
+            int avail = 64 - (i & 63);
+            int ones = Long.numberOfTrailingZeros(~word);
+            i += Math.min(ones, avail);
+            if (ones < avail) {
+                break;
+            } // if
+        } // while
+        return Math.min(i, end) - from;
+    } // runUp
+
+    /**
+     * Count the set bits of a bitset starting at index {@code from} and going down, stopping
+     * at the first clear bit, at index {@code 0}, or after {@code max} bits.
+     *
+     * @param bits the array holding the bitset
+     * @param base the index in {@code bits} of the bitset's first word
+     * @param from the first bit index to test ({@code -1} for none)
+     * @param max the most bits to count
+     * @return the run length
+     */
+    static int runDown(long[] bits, int base, int from, int max) {
+        int end = Math.max(-1, from - max);
+        int i = from;
+        while (i > end) {
+            long word = bits[base + (i >>> 6)] << (63 - (i & 63)); // bit i on top; zeros below
+            int avail = (i & 63) + 1;
+            int ones = Long.numberOfLeadingZeros(~word);
+            i -= Math.min(ones, avail);
+            if (ones < avail) {
+                break;
+            } // if
+        } // while
+        return from - Math.max(i, end);
+    } // runDown
+
+    /**
+     * Check a column index.
+     *
+     * @param col the column index
+     * @throws IndexOutOfBoundsException if {@code col} is not a valid column index
+     */
+    private void checkColumn(int col) {
+        if (col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: Please enter a valid column index.");
+        } // if
+    } // checkColumn
+
+    /**
+     * Return the grid drawn with one line per row, top row first: {@code X} for player
+     * {@code 0}, {@code O} for player {@code 1} and {@code .} for an empty cell.
+     *
+     * @return the grid as text
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder((this.cols + 1) * this.rows);
+        for (int row = 0; row < this.rows; row++) {
+            for (int col = 0; col < this.cols; col++) {
+                text.append(".XO".charAt(getPlayerAt(row, col) + 1));
+            } // for
+            text.append('\n');
+        } // for
+        return text.toString();
+    } // toString
+
+    /**
+     * Play random games on grids of growing size and print the average cost of a drop
+     * (including its win check, and taking it back when the game is reset), which should
+     * depend on {@code k} but not on the grid area.
+     *
+     * <pre>
+     * java cs1001.game.ConnectK [drops]
+     * </pre>
+     *
+     * @param args the command-line arguments: the number of drops to time per grid
+     *     (default 2,000,000)
+     */
+    public static void main(String[] args) {
+        long drops = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+        int[][] configs = {{6, 7, 4}, {64, 64, 4}, {64, 64, 8}, {256, 256, 8}, {1024, 1024, 8},
+            {1024, 1024, 32}};
+        System.out.println("      grid     k        drops   ns/drop   games");
+        for (int[] config : configs) {
+            ConnectK game = new ConnectK(config[0], config[1], config[2]);
+            SplittableRandom random = new SplittableRandom(1);
+            for (int round = 0; round < 2; round++) { // the first round warms up the JIT
+                long games = 0;
+                long start = System.nanoTime();
+                for (long i = 0; i < drops; i++) {
+                    if (game.getPhase() == GamePhase.OVER) {
+                        while (game.numDropped > 0) {
+                            game.undoLastDrop();
+                        } // while
+                        games++;
+                    } // if
+                    int col;
+                    do {
+                        col = random.nextInt(game.cols);
+                    } while (game.height[col] == game.rows);
+                    game.dropToken(game.nextPlayer(), col);
+                } // for
+                if (round == 1) {
+                    System.out.printf("%5dx%-5d %3d %12d %9.1f %7d\n", config[0], config[1],
+                            config[2], drops, (System.nanoTime() - start) / (double) drops,
+                            games);
+                } // if
+            } // for
+        } // for
+    } // main
+
+} // ConnectK
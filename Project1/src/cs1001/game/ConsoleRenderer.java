@@ -0,0 +1,254 @@
+package cs1001.game;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import cs1302.gameutil.Token;
+
+/**
+ * Draws {@link cs1001.game.ConnectFourCLI} screens to a terminal. The ASCII-art banners in
+ * {@code resources/} are read from disk once per program run, and each screen (banner, grid and
+ * prompt) is built in a reusable buffer and written with a single {@code print}, instead of
+ * one file read and one write per line or cell on every turn.
+ *
+ * <p>
+ * The grid is drawn in the same format as {@link cs1302.gameutil.TokenGrid#println}: one line
+ * per row, with the first letter of each token's name, or {@code .} for an empty cell. A
+ * renderer made by {@link #headless()} draws nothing at all, for scripted or bulk play; only
+ * {@link #result} still prints its one line, to the renderer's result stream.
+ */
+public final class ConsoleRenderer {
+
+    /** Directory holding the banner files, relative to the working directory. */
+    static final String RESOURCES = "resources/";
+
+    private static String welcome; // welcome.txt, once read
+    private static String header; // connectfour.txt, once read
+    private static String gameOver; // gameover.txt, once read
+
+    private final PrintStream out; // where screens go, or null if headless
+    private final PrintStream results; // where a headless renderer prints results
+    private final StringBuilder frame; // reused for every screen
+
+    /**
+     * Constructs a renderer that draws to {@code out}.
+     *
+     * @param out the stream to draw to
+     * @throws NullPointerException if {@code out} is {@code null}
+     */
+    public ConsoleRenderer(PrintStream out) {
+        this(out, out);
+        if (out == null) {
+            throw new NullPointerException("Null argument(s): out must not be null.");
+        } // if
+    } // ConsoleRenderer
+
+    /**
+     * Constructs a renderer that draws to {@code out}, or nothing if {@code out} is
+     * {@code null}, and prints results to {@code results}.
+     *
+     * @param out the stream to draw to, or {@code null}
+     * @param results the stream for {@link #result}
+     */
+    private ConsoleRenderer(PrintStream out, PrintStream results) {
+        this.out = out;
+        this.results = results;
+        this.frame = out == null ? null : new StringBuilder(2048);
+    } // ConsoleRenderer
+
+    /**
+     * Return a renderer that draws nothing, for {@code --headless}/{@code --quiet} play, and
+     * prints results on standard output.
+     *
+     * @return a headless renderer
+     */
+    public static ConsoleRenderer headless() {
+        return headless(System.out);
+    } // headless
+
+    /**
+     * Return a renderer that draws nothing and prints results to {@code results}.
+     *
+     * @param results the stream for {@link #result}
+     * @return a headless renderer
+     * @throws NullPointerException if {@code results} is {@code null}
+     */
+    public static ConsoleRenderer headless(PrintStream results) {
+        if (results == null) {
+            throw new NullPointerException("Null argument(s): results must not be null.");
+        } // if
+        return new ConsoleRenderer(null, results);
+    } // headless
+
+    /**
+     * Return whether this renderer draws nothing.
+     *
+     * @return {@code true} if this renderer was made by {@link #headless()}
+     */
+    public boolean isHeadless() {
+        return this.out == null;
+    } // isHeadless
+
+    /**
+     * Draw the welcome banner followed by the "Connect Four" header.
+     */
+    public void welcome() {
+        if (isHeadless()) {
+            return;
+        } // if
+        this.frame.setLength(0);
+        this.frame.append(welcomeBanner()).append('\n').append(headerBanner());
+        flush();
+    } // welcome
+
+    /**
+     * Draw one turn: the header, the grid and the prompt for {@code player}'s column.
+     *
+     * @param game the game
+     * @param player the player to drop next
+     */
+    public void turn(ConnectFour game, int player) {
+        if (isHeadless()) {
+            return;
+        } // if
+        this.frame.setLength(0);
+        this.frame.append(headerBanner()).append('\n');
+        appendGrid(game);
+        this.frame.append("\nPlayer ").append(player)
+                .append(", enter a column to drop your token: ");
+        flush();
+    } // turn
+
+    /**
+     * Draw the "Game Over" banner and the final grid.
+     *
+     * @param game the game
+     */
+    public void gameOver(ConnectFour game) {
+        if (isHeadless()) {
+            return;
+        } // if
+        this.frame.setLength(0);
+        this.frame.append(gameOverBanner());
+        appendGrid(game);
+        flush();
+    } // gameOver
+
+    /**
+     * Draw a line of text, such as a prompt or an error message.
+     *
+     * @param text the text, with any line breaks it needs
+     */
+    public void message(String text) {
+        if (isHeadless()) {
+            return;
+        } // if
+        this.out.print(text);
+        this.out.flush();
+    } // message
+
+    /**
+     * Print how the game ended. Unlike the other methods, a headless renderer prints this too,
+     * as one plain line on its result stream, so that scripts can read the outcome.
+     *
+     * @param winner the winning player, or {@code -1} for a draw
+     */
+    public void result(int winner) {
+        if (isHeadless()) {
+            this.results.println(winner < 0 ? "draw" : "winner " + winner);
+            this.results.flush();
+        } else if (winner < 0) {
+            message("\n\nThe grid is full. It's a draw!\n\n");
+        } else {
+            message("\n\nCongratulations, player %s. You won!\n\n".formatted(winner));
+        } // if
+    } // result
+
+    /**
+     * Append the grid to the frame as {@link cs1302.gameutil.TokenGrid#println} prints it: one
+     * line per row, with a letter for every token and {@code .} for every empty cell.
+     *
+     * @param game the game
+     */
+    private void appendGrid(ConnectFour game) {
+        int rows = game.getRows();
+        int cols = game.getCols();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Token token = game.getTokenAt(row, col);
+                this.frame.append(token == null ? '.' : token.name().charAt(0)).append(' ');
+            } // for
+            this.frame.append('\n');
+        } // for
+    } // appendGrid
+
+    /**
+     * Write the frame with a single print and flush it.
+     */
+    private void flush() {
+        this.out.print(this.frame);
+        this.out.flush();
+    } // flush
+
+    /**
+     * Return the welcome banner, reading it on first use.
+     *
+     * @return the banner text
+     */
+    static synchronized String welcomeBanner() {
+        if (welcome == null) {
+            welcome = load("welcome.txt");
+        } // if
+        return welcome;
+    } // welcomeBanner
+
+    /**
+     * Return the "Connect Four" header, reading it on first use.
+     *
+     * @return the banner text
+     */
+    static synchronized String headerBanner() {
+        if (header == null) {
+            header = load("connectfour.txt");
+        } // if
+        return header;
+    } // headerBanner
+
+    /**
+     * Return the "Game Over" banner, reading it on first use.
+     *
+     * @return the banner text
+     */
+    static synchronized String gameOverBanner() {
+        if (gameOver == null) {
+            gameOver = load("gameover.txt");
+        } // if
+        return gameOver;
+    } // gameOverBanner
+
+    /**
+     * Read a banner file from {@link #RESOURCES}, with every line ending in a line feed. Like
+     * {@link cs1001.game.ConnectFourCLI#printFileLines}, this exits the program if the file is
+     * missing.
+     *
+     * @param name the file name
+     * @return the banner text
+     */
+    private static String load(String name) {
+        String filename = RESOURCES + name;
+        try {
+            StringBuilder text = new StringBuilder();
+            for (String line : Files.readAllLines(Path.of(filename))) {
+                text.append(line).append('\n');
+            } // for
+            return text.toString();
+        } catch (IOException ioe) {
+            System.out.println("Missing " + filename + ". Make sure it is in the" +
+                "resource folder in the projects home directory.");
+            System.exit(1);
+            return null; // not reached
+        } // try
+    } // load
+
+} // ConsoleRenderer
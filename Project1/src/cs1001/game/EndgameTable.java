@@ -0,0 +1,595 @@
+package cs1001.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import cs1302.gameutil.GamePhase;
+
+/**
+ * A table of solved endgame positions, read straight from a memory-mapped file and indexed by a
+ * minimal perfect hash. A table covers every position reachable from one starting position
+ * that has at most {@code empties} empty cells, and stores for each the exact
+ * {@link cs1001.game.ConnectFourSolver} score and a best column. A solver given the table (see
+ * {@link cs1001.game.ConnectFourSolver#solve(ConnectFour, TranspositionTable, EndgameTable)})
+ * answers every such position it reaches with one lookup instead of a search of its subtree.
+ *
+ * <p>
+ * Tables are built by retrograde analysis: {@link #build} walks the game tree down from the
+ * starting position, visiting each distinct position once, and solves the covered positions
+ * bottom-up, each from the already known scores of its children, with no pruning. All
+ * positions with at most {@code empties} empty cells <em>of a grid size</em> would be far too
+ * many even for one empty cell (every coloring of the other cells counts), so a table is tied
+ * to the game it was built for, such as a crowded 9x9 position whose remaining search is still
+ * slow.
+ *
+ * <p>
+ * The index is a hash-and-displace perfect hash: keys are hashed into buckets of about
+ * {@value #BUCKET_SIZE}, and each bucket stores the displacement that sends all its keys to
+ * distinct slots, so a lookup is two hashes and two reads, and no slot is left empty. Each
+ * {@code long} slot holds a 48-bit fingerprint of its key (so a position not in the table is
+ * rejected, except with probability {@code 2^-48}), the score and the best column.
+ *
+ * <p>
+ * File layout (big-endian): a {@value #HEADER_BYTES}-byte header ({@code int} magic
+ * {@code "C4EG"}, {@code int} version, {@code byte} rows, {@code byte} cols, {@code byte}
+ * empties, one reserved byte, {@code int} position count {@code n}, {@code int} bucket count
+ * {@code b}), then {@code b} {@code int} displacements, then {@code n} {@code long} slots.
+ *
+ * <pre>
+ * $ java cs1001.game.EndgameTable build late.bin 16 late-game.txt
+ * $ java cs1001.game.EndgameTable solve late.bin late-game.txt
+ * </pre>
+ */
+public final class EndgameTable {
+
+    /** The first four bytes of every table file: {@code "C4EG"}. */
+    static final int MAGIC = 0x43344547;
+    /** The file format version. */
+    static final int VERSION = 1;
+    /** Size of the file header, in bytes. */
+    static final int HEADER_BYTES = 20;
+    /** Average number of keys per perfect-hash bucket. */
+    static final int BUCKET_SIZE = 4;
+
+    /** Perfect play on from the position of {@link cs1001.game.ParallelSolver#DEMO_MOVES}. */
+    static final int[] DEMO_MOVES = {2, 3, 5, 2, 3, 4, 3, 3, 1, 4};
+
+    private final MappedByteBuffer buffer; // the whole file, read-only
+    private final int rows; // number of grid rows
+    private final int cols; // number of grid columns
+    private final int empties; // most empty cells of a covered position
+    private final int count; // number of positions (and slots)
+    private final int buckets; // number of perfect-hash buckets
+    private final int slots; // offset of the first slot, in bytes
+
+    /**
+     * Constructs a table over a mapped file whose header has been checked.
+     *
+     * @param buffer the mapped file
+     */
+    private EndgameTable(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.rows = buffer.get(8);
+        this.cols = buffer.get(9);
+        this.empties = buffer.get(10);
+        this.count = buffer.getInt(12);
+        this.buckets = buffer.getInt(16);
+        this.slots = HEADER_BYTES + 4 * this.buckets;
+    } // EndgameTable
+
+    /**
+     * Map a table file into memory.
+     *
+     * @param file the table file
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a valid table
+     */
+    public static EndgameTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a table file: " + file);
+            } // if
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " table file: " + file);
+            } // if
+            if (size != HEADER_BYTES + 4L * buffer.getInt(16) + 8L * buffer.getInt(12)) {
+                throw new IOException("Truncated table file: " + file);
+            } // if
+            return new EndgameTable(buffer); // the mapping outlives the channel
+        } // try
+    } // open
+
+    /**
+     * Return the number of grid rows the table is for.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    } // getRows
+
+    /**
+     * Return the number of grid columns the table is for.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    } // getCols
+
+    /**
+     * Return the largest number of empty cells of a position in the table.
+     *
+     * @return the number of empty cells
+     */
+    public int getEmpties() {
+        return this.empties;
+    } // getEmpties
+
+    /**
+     * Return the number of positions in the table.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return this.count;
+    } // size
+
+    /**
+     * Return the slot stored for a key, or {@code 0} if the key is not in the table. Use
+     * {@link #score} and {@link #bestCol} to unpack it.
+     *
+     * @param keyLo the low word of the key (see {@link cs1001.game.TranspositionTable#keyLo})
+     * @param keyHi the high word of the key
+     * @return the slot, or {@code 0}
+     */
+    long probe(long keyLo, long keyHi) {
+        if (this.count == 0) {
+            return 0;
+        } // if
+        long h = hash(keyLo, keyHi);
+        int d = this.buffer.getInt(HEADER_BYTES + 4 * (int) Long.remainderUnsigned(h,
+                this.buckets));
+        long slot = this.buffer.getLong(this.slots + 8 * slot(h, d, this.count));
+        return slot >>> 16 == h >>> 16 ? slot : 0;
+    } // probe
+
+    /**
+     * Return the score in a slot returned by {@link #probe}.
+     *
+     * @param slot the slot
+     * @return the score for the player to move, as defined by {@code ConnectFourSolver}
+     */
+    static int score(long slot) {
+        return (byte) (slot >>> 8);
+    } // score
+
+    /**
+     * Return the best column in a slot returned by {@link #probe}.
+     *
+     * @param slot the slot
+     * @return a column achieving the score, or {@code -1} if the grid is full
+     */
+    static int bestCol(long slot) {
+        return (byte) slot;
+    } // bestCol
+
+    /**
+     * Return the score and a best column of the position in {@code game} for the player
+     * expected to drop next, if the table has it.
+     *
+     * @param game the game
+     * @return the result (with one node and no time spent), or {@code null} if the position
+     *         is not in the table
+     * @throws NullPointerException if {@code game} is {@code null}
+     */
+    public ConnectFourSolver.Result lookup(ConnectFour game) {
+        if (game.getRows() != this.rows || game.getCols() != this.cols
+                || game.getPhase() == GamePhase.OVER) {
+            return null;
+        } // if
+        BitBoard board = game.copyBoard();
+        int player = game.nextPlayer();
+        long slot = board.rows * board.cols - board.count > this.empties ? 0
+                : probe(TranspositionTable.keyLo(board, player),
+                TranspositionTable.keyHi(board, player));
+        return slot == 0 ? null : new ConnectFourSolver.Result(score(slot), bestCol(slot), 1, 0);
+    } // lookup
+
+    /**
+     * Build the table of every position reachable from {@code game} with at most
+     * {@code empties} empty cells, and write it to {@code file}. The player to move is the one
+     * {@code game} expects next. Positions where the game is already over, and positions a
+     * search never reaches because an earlier player to move could have won at once, are left
+     * out.
+     *
+     * @param file the file to write
+     * @param game the starting position
+     * @param empties the largest number of empty cells of a covered position
+     * @return the number of positions written
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if {@code file} or {@code game} is {@code null}
+     * @throws IllegalArgumentException if {@code empties} is negative or larger than the grid
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}, or the
+     *                               table would not fit in one mapped file
+     */
+    public static int build(Path file, ConnectFour game, int empties) throws IOException {
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: There is nothing to solve once the game is over.");
+        } // if
+        if (empties < 0 || empties > game.getRows() * game.getCols()) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need 0 <= empties <= rows * cols.");
+        } // if
+        Builder builder = new Builder(game.copyBoard(), empties);
+        builder.enumerate(game.nextPlayer());
+        KeyMap solved = builder.solved;
+        int n = solved.size;
+        int b = Math.max(1, n / BUCKET_SIZE);
+        if (HEADER_BYTES + 4L * b + 8L * n > Integer.MAX_VALUE) {
+            throw new IllegalStateException(
+                    "Too many positions: %d do not fit in one table file.".formatted(n));
+        } // if
+        long[] hashes = new long[n];
+        int[] values = new int[n];
+        for (int i = 0, j = 0; i < solved.capacity(); i++) {
+            if (solved.values[i] != 0) {
+                hashes[j] = hash(solved.keys[2 * i], solved.keys[2 * i + 1]);
+                values[j++] = solved.values[i] - 1;
+            } // if
+        } // for
+        int[] displacements = new int[b];
+        long[] slots = new long[n];
+        displace(hashes, values, displacements, slots);
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + 4 * b + 8 * n);
+        out.putInt(MAGIC).putInt(VERSION).put((byte) game.getRows()).put((byte) game.getCols())
+                .put((byte) empties).put((byte) 0).putInt(n).putInt(b);
+        for (int d : displacements) {
+            out.putInt(d);
+        } // for
+        for (long slot : slots) {
+            out.putLong(slot);
+        } // for
+        Files.write(file, out.array());
+        return n;
+    } // build
+
+    /**
+     * Find a displacement for every bucket of a minimal perfect hash of {@code hashes}, and
+     * fill each key's slot with its fingerprint and value. Buckets are placed largest first,
+     * while most slots are still free; each tries displacements {@code 0, 1, 2, ...} until all
+     * of its keys land on distinct free slots.
+     *
+     * @param hashes the keys' hashes (see {@link #hash})
+     * @param values each key's packed score and column (see {@link Builder#pack})
+     * @param displacements the displacement of each bucket (filled in)
+     * @param slots the slots (filled in)
+     */
+    private static void displace(long[] hashes, int[] values, int[] displacements,
+            long[] slots) {
+        int n = hashes.length;
+        int b = displacements.length;
+        int[] start = new int[b + 1]; // keys of bucket i are members[start[i]..start[i+1])
+        for (long h : hashes) {
+            start[(int) Long.remainderUnsigned(h, b) + 1]++;
+        } // for
+        int largest = 0;
+        for (int i = 0; i < b; i++) {
+            largest = Math.max(largest, start[i + 1]);
+            start[i + 1] += start[i];
+        } // for
+        int[] members = new int[n];
+        int[] fill = start.clone();
+        for (int k = 0; k < n; k++) {
+            members[fill[(int) Long.remainderUnsigned(hashes[k], b)]++] = k;
+        } // for
+        boolean[] taken = new boolean[n];
+        int[] chosen = new int[largest];
+        for (int size = largest; size > 0; size--) {
+            for (int bucket = 0; bucket < b; bucket++) {
+                if (start[bucket + 1] - start[bucket] != size) {
+                    continue;
+                } // if
+                for (int d = 0; ; d++) {
+                    int placed = 0;
+                    while (placed < size) {
+                        int s = slot(hashes[members[start[bucket] + placed]], d, n);
+                        boolean clash = taken[s];
+                        for (int j = 0; j < placed && !clash; j++) {
+                            clash = chosen[j] == s;
+                        } // for
+                        if (clash) {
+                            break;
+                        } // if
+                        chosen[placed++] = s;
+                    } // while
+                    if (placed == size) {
+                        displacements[bucket] = d;
+                        for (int j = 0; j < size; j++) {
+                            int k = members[start[bucket] + j];
+                            taken[chosen[j]] = true;
+                            slots[chosen[j]] = hashes[k] >>> 16 << 16 | values[k] & 0xFFFF;
+                        } // for
+                        break;
+                    } // if
+                } // for
+            } // for
+        } // for
+    } // displace
+
+    /**
+     * Return the hash of a position key. Its remainder by the bucket count picks the bucket,
+     * and its top 48 bits are the key's fingerprint.
+     *
+     * @param keyLo the key's low word
+     * @param keyHi the key's high word
+     * @return the hash
+     */
+    static long hash(long keyLo, long keyHi) {
+        return mix(keyLo ^ mix(keyHi + 0x9E3779B97F4A7C15L));
+    } // hash
+
+    /**
+     * Return the slot of a key with hash {@code h} in a bucket with displacement {@code d}.
+     *
+     * @param h the key's hash
+     * @param d the bucket's displacement
+     * @param n the number of slots
+     * @return the slot index
+     */
+    static int slot(long h, int d, int n) {
+        return (int) Long.remainderUnsigned(mix(h + d * 0xC2B2AE3D27D4EB4FL), n);
+    } // slot
+
+    /**
+     * Scramble the bits of {@code z} (the SplitMix64 finalizer).
+     *
+     * @param z the value
+     * @return the scrambled value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    } // mix
+
+    /**
+     * The retrograde analysis behind {@link #build}: a depth-first walk that visits each
+     * distinct position once and solves the covered ones children first.
+     */
+    private static final class Builder {
+
+        private final BitBoard board; // the position being visited; restored after each visit
+        private final int size; // number of cells in the grid
+        private final int empties; // most empty cells of a covered position
+        private final int[] order; // center-first column order
+        private final KeyMap seen = new KeyMap(); // visited positions above the table
+        private final KeyMap solved = new KeyMap(); // covered positions: key -> pack(...) + 1
+
+        /**
+         * Constructs a builder that walks down from {@code board}.
+         *
+         * @param board the starting position (owned by the builder from now on)
+         * @param empties the largest number of empty cells of a covered position
+         */
+        private Builder(BitBoard board, int empties) {
+            this.board = board;
+            this.size = board.rows * board.cols;
+            this.empties = empties;
+            this.order = ConnectFourSolver.centerFirst(board.cols);
+        } // Builder
+
+        /**
+         * Visit every position reachable from the board, solving the covered ones. Like the
+         * solver, the walk does not go past a position where the player to move can win at
+         * once, so no position below one is stored.
+         *
+         * @param player the player to move
+         */
+        private void enumerate(int player) {
+            if (this.size - this.board.count <= this.empties) {
+                solve(player);
+                return;
+            } // if
+            long keyLo = TranspositionTable.keyLo(this.board, player);
+            long keyHi = TranspositionTable.keyHi(this.board, player);
+            if (this.seen.get(keyLo, keyHi) != 0) {
+                return;
+            } // if
+            this.seen.put(keyLo, keyHi, 1);
+            for (int col : this.order) {
+                if (!this.board.isFull(col) && this.board.isWinningDrop(player, col)) {
+                    return; // a search stops here too
+                } // if
+            } // for
+            for (int col : this.order) {
+                if (!this.board.isFull(col)) {
+                    this.board.drop(player, col);
+                    enumerate(1 - player);
+                    this.board.undo(col);
+                } // if
+            } // for
+        } // enumerate
+
+        /**
+         * Solve the board, and every position below it, with plain negamax over all columns.
+         *
+         * @param player the player to move
+         * @return the board's packed score and best column (see {@link #pack})
+         */
+        private int solve(int player) {
+            long keyLo = TranspositionTable.keyLo(this.board, player);
+            long keyHi = TranspositionTable.keyHi(this.board, player);
+            int known = this.solved.get(keyLo, keyHi);
+            if (known != 0) {
+                return known - 1;
+            } // if
+            int moves = this.board.count;
+            int value = pack(0, -1); // a full grid is a draw
+            for (int col : this.order) {
+                if (!this.board.isFull(col) && this.board.isWinningDrop(player, col)) {
+                    value = pack((this.size + 1 - moves) / 2, col);
+                    this.solved.put(keyLo, keyHi, value + 1);
+                    return value;
+                } // if
+            } // for
+            int best = Integer.MIN_VALUE;
+            for (int col : this.order) {
+                if (!this.board.isFull(col)) {
+                    this.board.drop(player, col);
+                    int score = -score(solve(1 - player));
+                    this.board.undo(col);
+                    if (score > best) {
+                        best = score;
+                        value = pack(score, col);
+                    } // if
+                } // if
+            } // for
+            this.solved.put(keyLo, keyHi, value + 1);
+            return value;
+        } // solve
+
+        /**
+         * Pack a score and a column into the low 16 bits of a slot.
+         *
+         * @param score the score
+         * @param col the column, or {@code -1}
+         * @return the packed value
+         */
+        private static int pack(int score, int col) {
+            return (score & 0xFF) << 8 | col & 0xFF;
+        } // pack
+
+    } // Builder
+
+    /**
+     * A growable open-addressing map from two-word keys to non-zero {@code int} values, with
+     * no per-entry objects, for the millions of positions a build visits.
+     */
+    private static final class KeyMap {
+
+        private long[] keys = new long[2 << 10]; // key pairs, low word first
+        private int[] values = new int[1 << 10]; // 0 marks an empty slot
+        private int size; // number of keys
+
+        /**
+         * Return the number of slots.
+         *
+         * @return the capacity
+         */
+        private int capacity() {
+            return this.values.length;
+        } // capacity
+
+        /**
+         * Return the value of a key.
+         *
+         * @param keyLo the key's low word
+         * @param keyHi the key's high word
+         * @return the value, or {@code 0} if the key is absent
+         */
+        private int get(long keyLo, long keyHi) {
+            int mask = this.values.length - 1;
+            for (int i = (int) hash(keyLo, keyHi) & mask; ; i = (i + 1) & mask) {
+                if (this.values[i] == 0) {
+                    return 0;
+                } else if (this.keys[2 * i] == keyLo && this.keys[2 * i + 1] == keyHi) {
+                    return this.values[i];
+                } // if
+            } // for
+        } // get
+
+        /**
+         * Set the value of a key that is not in the map yet.
+         *
+         * @param keyLo the key's low word
+         * @param keyHi the key's high word
+         * @param value the value (not {@code 0})
+         */
+        private void put(long keyLo, long keyHi, int value) {
+            if (2 * (this.size + 1) > this.values.length) { // keep the load at most 1/2
+                long[] oldKeys = this.keys;
+                int[] oldValues = this.values;
+                this.keys = new long[2 * oldKeys.length];
+                this.values = new int[2 * oldValues.length];
+                this.size = 0;
+                for (int i = 0; i < oldValues.length; i++) {
+                    if (oldValues[i] != 0) {
+                        put(oldKeys[2 * i], oldKeys[2 * i + 1], oldValues[i]);
+                    } // if
+                } // for
+            } // if
+            int mask = this.values.length - 1;
+            int i = (int) hash(keyLo, keyHi) & mask;
+            while (this.values[i] != 0) {
+                i = (i + 1) & mask;
+            } // while
+            this.keys[2 * i] = keyLo;
+            this.keys[2 * i + 1] = keyHi;
+            this.values[i] = value;
+            this.size++;
+        } // put
+
+    } // KeyMap
+
+    /**
+     * Return the 6x7 game of {@link cs1001.game.ParallelSolver#demoGame} with
+     * {@link #DEMO_MOVES} played on, leaving 20 empty cells.
+     *
+     * @return the game
+     */
+    static ConnectFour demoGame() {
+        ConnectFour game = ParallelSolver.demoGame();
+        for (int col : DEMO_MOVES) {
+            game.dropToken(game.nextPlayer(), col);
+        } // for
+        return game;
+    } // demoGame
+
+    /**
+     * Build a table or solve a position with one.
+     *
+     * <pre>
+     * java cs1001.game.EndgameTable build table empties [game file]
+     * java cs1001.game.EndgameTable solve table [game file]
+     * </pre>
+     *
+     * <p>
+     * Without a game file (see {@link cs1001.game.ConnectFour#fromFile}), the late 6x7
+     * position of {@link #demoGame} is used. A build visits every distinct position between
+     * the game and the table, so keep {@code empties} within about ten cells of the game's
+     * empty cells. {@code solve} solves the position without and then with the table and
+     * prints both results.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if a table or game file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("build")) {
+            ConnectFour game = args.length > 3 ? ConnectFour.fromFile(args[3]) : demoGame();
+            long start = System.nanoTime();
+            int n = build(Path.of(args[1]), game, Integer.parseInt(args[2]));
+            System.out.printf("%d positions, %d bytes, in %.1f s\n", n,
+                    Files.size(Path.of(args[1])), (System.nanoTime() - start) / 1e9);
+        } else if (args.length >= 2 && args[0].equals("solve")) {
+            EndgameTable table = open(Path.of(args[1]));
+            ConnectFour game = args.length > 2 ? ConnectFour.fromFile(args[2]) : demoGame();
+            System.out.println("without table: " + ConnectFourSolver.solve(game));
+            System.out.println("with table:    " + ConnectFourSolver.solve(game,
+                    new TranspositionTable(), table));
+        } else {
+            System.out.println("Usage: java cs1001.game.EndgameTable build table empties "
+                    + "[game file]");
+            System.out.println("       java cs1001.game.EndgameTable solve table [game file]");
+        } // if
+    } // main
+
+} // EndgameTable
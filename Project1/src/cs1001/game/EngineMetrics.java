@@ -0,0 +1,478 @@
+package cs1001.game;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in counters and latency histograms for the game engine: drops, win checks, rejected
+ * drops, searches, search nodes and cutoffs, drop latency and search latency. Metrics are off
+ * unless the JVM is started with {@code -Dcs1001.game.metrics=true}:
+ *
+ * <pre>
+ * $ java -Dcs1001.game.metrics=true -Dcs1001.game.metrics.period=10 cs1001.game.GameServer
+ * </pre>
+ *
+ * <p>
+ * The switch is the {@code static final} field {@link #ENABLED}, and every hook in the engine
+ * is guarded by {@code if (EngineMetrics.ENABLED)}. The JIT compiler treats the field as a
+ * constant, so with metrics off the hooks are compiled out of the hot paths entirely. With
+ * metrics on, counts go to {@link java.util.concurrent.atomic.LongAdder}s, which threads can
+ * bump without contending, and one drop in {@link #DROP_SAMPLE} is timed. Searches keep their
+ * node, cutoff and win-check counts in plain fields and report them once, when they finish.
+ *
+ * <p>
+ * When enabled, the metrics are registered as the MXBean {@value #OBJECT_NAME} (visible in
+ * JConsole or any JMX client, with no profiler attached), and a daemon thread prints a
+ * {@link Snapshot} line to standard error every {@code cs1001.game.metrics.period} seconds
+ * ({@code 60} by default; {@code 0} turns the line off).
+ */
+public final class EngineMetrics {
+
+    /** Whether metrics are collected; set once, from the system property at class loading. */
+    public static final boolean ENABLED = Boolean.getBoolean("cs1001.game.metrics");
+
+    /** The JMX name the metrics are registered under. */
+    public static final String OBJECT_NAME = "cs1001.game:type=EngineMetrics";
+
+    /** One drop in this many has its latency recorded. */
+    static final int DROP_SAMPLE = 16;
+
+    private static final LongAdder DROPS = new LongAdder();
+    private static final LongAdder WIN_CHECKS = new LongAdder();
+    private static final LongAdder ILLEGAL_MOVES = new LongAdder();
+    private static final LongAdder SEARCHES = new LongAdder();
+    private static final LongAdder NODES = new LongAdder();
+    private static final LongAdder CUTOFFS = new LongAdder();
+    private static final Histogram DROP_NANOS = new Histogram();
+    private static final Histogram SEARCH_NANOS = new Histogram();
+
+    static {
+        if (ENABLED) {
+            register();
+            long period = Long.getLong("cs1001.game.metrics.period", 60);
+            if (period > 0) {
+                ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "EngineMetrics-log");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                timer.scheduleAtFixedRate(() -> System.err.println(snapshot()), period, period,
+                        TimeUnit.SECONDS);
+            } // if
+        } // if
+    } // static
+
+    /**
+     * No instances: all methods are static.
+     */
+    private EngineMetrics() {
+    } // EngineMetrics
+
+    /**
+     * The metrics at one point in time. Latencies are in nanoseconds, accurate to within 25%
+     * (see {@link Histogram}), and {@code 0} until something has been timed.
+     *
+     * @param drops the number of tokens dropped
+     * @param winChecks the number of times a drop was checked for a four-in-a-row, by games and
+     *                  by searches
+     * @param illegalMoves the number of drops rejected with an exception
+     * @param searches the number of searches finished
+     * @param nodes the number of positions those searches visited
+     * @param cutoffs the number of beta cutoffs in those searches
+     * @param dropP50 the median latency of the sampled drops
+     * @param dropP99 the 99th-percentile latency of the sampled drops
+     * @param searchP50 the median search time
+     * @param searchP99 the 99th-percentile search time
+     * @param searchMax the longest search time
+     */
+    public record Snapshot(long drops, long winChecks, long illegalMoves, long searches,
+            long nodes, long cutoffs, long dropP50, long dropP99, long searchP50, long searchP99,
+            long searchMax) {
+
+        /**
+         * Return the snapshot as one log line.
+         *
+         * @return the line
+         */
+        @Override
+        public String toString() {
+            return ("engine: drops %d, win checks %d, illegal moves %d, searches %d, nodes %d, "
+                    + "cutoffs %d; drop p50 %d ns p99 %d ns; search p50 %.3f ms p99 %.3f ms "
+                    + "max %.3f ms").formatted(drops, winChecks, illegalMoves, searches, nodes,
+                    cutoffs, dropP50, dropP99, searchP50 / 1e6, searchP99 / 1e6,
+                    searchMax / 1e6);
+        } // toString
+
+    } // Snapshot
+
+    /**
+     * The management interface of the metrics, as seen by JMX clients. Each attribute reads
+     * the live value; {@link #getSummary} reads them all at once.
+     */
+    public interface MetricsMXBean {
+
+        /**
+         * Return the number of tokens dropped.
+         *
+         * @return the count
+         */
+        long getDrops();
+
+        /**
+         * Return the number of win checks, by games and by searches.
+         *
+         * @return the count
+         */
+        long getWinChecks();
+
+        /**
+         * Return the number of drops rejected with an exception.
+         *
+         * @return the count
+         */
+        long getIllegalMoves();
+
+        /**
+         * Return the number of searches finished.
+         *
+         * @return the count
+         */
+        long getSearches();
+
+        /**
+         * Return the number of positions visited by finished searches.
+         *
+         * @return the count
+         */
+        long getSearchNodes();
+
+        /**
+         * Return the number of beta cutoffs in finished searches.
+         *
+         * @return the count
+         */
+        long getCutoffs();
+
+        /**
+         * Return the median latency of the sampled drops.
+         *
+         * @return the latency, in nanoseconds
+         */
+        long getDropLatencyP50();
+
+        /**
+         * Return the 99th-percentile latency of the sampled drops.
+         *
+         * @return the latency, in nanoseconds
+         */
+        long getDropLatencyP99();
+
+        /**
+         * Return the median search time.
+         *
+         * @return the time, in nanoseconds
+         */
+        long getSearchLatencyP50();
+
+        /**
+         * Return the 99th-percentile search time.
+         *
+         * @return the time, in nanoseconds
+         */
+        long getSearchLatencyP99();
+
+        /**
+         * Return the longest search time.
+         *
+         * @return the time, in nanoseconds
+         */
+        long getSearchLatencyMax();
+
+        /**
+         * Return all metrics as one log line.
+         *
+         * @return the line
+         */
+        String getSummary();
+
+        /**
+         * Set every counter and histogram back to zero.
+         */
+        void reset();
+
+    } // MetricsMXBean
+
+    /**
+     * Return whether metrics are collected.
+     *
+     * @return {@link #ENABLED}
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    } // isEnabled
+
+    /**
+     * Return the current metrics. Counters updated while the snapshot is taken may or may not
+     * be included.
+     *
+     * @return the metrics
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot(DROPS.sum(), WIN_CHECKS.sum(), ILLEGAL_MOVES.sum(), SEARCHES.sum(),
+                NODES.sum(), CUTOFFS.sum(), DROP_NANOS.percentile(0.50),
+                DROP_NANOS.percentile(0.99), SEARCH_NANOS.percentile(0.50),
+                SEARCH_NANOS.percentile(0.99), SEARCH_NANOS.max());
+    } // snapshot
+
+    /**
+     * Set every counter and histogram back to zero.
+     */
+    public static void reset() {
+        DROPS.reset();
+        WIN_CHECKS.reset();
+        ILLEGAL_MOVES.reset();
+        SEARCHES.reset();
+        NODES.reset();
+        CUTOFFS.reset();
+        DROP_NANOS.reset();
+        SEARCH_NANOS.reset();
+    } // reset
+
+    /**
+     * Return a start time for {@link #dropped}: the current {@link System#nanoTime} for one
+     * drop in {@link #DROP_SAMPLE}, or {@code 0} for the others.
+     *
+     * @return the start time, or {@code 0} if this drop is not timed
+     */
+    static long dropStart() {
+        return ThreadLocalRandom.current().nextInt(DROP_SAMPLE) == 0 ? System.nanoTime() : 0;
+    } // dropStart
+
+    /**
+     * Count a drop that succeeded.
+     *
+     * @param start the value {@link #dropStart} returned for it
+     */
+    static void dropped(long start) {
+        DROPS.increment();
+        if (start != 0) {
+            DROP_NANOS.record(System.nanoTime() - start);
+        } // if
+    } // dropped
+
+    /**
+     * Count one check for a four-in-a-row through a drop.
+     */
+    static void winCheck() {
+        WIN_CHECKS.increment();
+    } // winCheck
+
+    /**
+     * Count a drop rejected with an exception.
+     */
+    static void illegalMove() {
+        ILLEGAL_MOVES.increment();
+    } // illegalMove
+
+    /**
+     * Count a finished search.
+     *
+     * @param nodes the number of positions it visited
+     * @param cutoffs the number of beta cutoffs in it
+     * @param winChecks the number of win checks it made
+     * @param nanos the time it took, in nanoseconds
+     */
+    static void searched(long nodes, long cutoffs, long winChecks, long nanos) {
+        SEARCHES.increment();
+        NODES.add(nodes);
+        CUTOFFS.add(cutoffs);
+        WIN_CHECKS.add(winChecks);
+        SEARCH_NANOS.record(nanos);
+    } // searched
+
+    /**
+     * Register the metrics with the platform MBean server under {@link #OBJECT_NAME}.
+     */
+    private static void register() {
+        MetricsMXBean bean = new MetricsMXBean() {
+            @Override
+            public long getDrops() {
+                return DROPS.sum();
+            } // getDrops
+
+            @Override
+            public long getWinChecks() {
+                return WIN_CHECKS.sum();
+            } // getWinChecks
+
+            @Override
+            public long getIllegalMoves() {
+                return ILLEGAL_MOVES.sum();
+            } // getIllegalMoves
+
+            @Override
+            public long getSearches() {
+                return SEARCHES.sum();
+            } // getSearches
+
+            @Override
+            public long getSearchNodes() {
+                return NODES.sum();
+            } // getSearchNodes
+
+            @Override
+            public long getCutoffs() {
+                return CUTOFFS.sum();
+            } // getCutoffs
+
+            @Override
+            public long getDropLatencyP50() {
+                return DROP_NANOS.percentile(0.50);
+            } // getDropLatencyP50
+
+            @Override
+            public long getDropLatencyP99() {
+                return DROP_NANOS.percentile(0.99);
+            } // getDropLatencyP99
+
+            @Override
+            public long getSearchLatencyP50() {
+                return SEARCH_NANOS.percentile(0.50);
+            } // getSearchLatencyP50
+
+            @Override
+            public long getSearchLatencyP99() {
+                return SEARCH_NANOS.percentile(0.99);
+            } // getSearchLatencyP99
+
+            @Override
+            public long getSearchLatencyMax() {
+                return SEARCH_NANOS.max();
+            } // getSearchLatencyMax
+
+            @Override
+            public String getSummary() {
+                return snapshot().toString();
+            } // getSummary
+
+            @Override
+            public void reset() {
+                EngineMetrics.reset();
+            } // reset
+        };
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean,
+                    new ObjectName(OBJECT_NAME));
+        } catch (JMException jme) { // e.g. registered already by another class loader
+            System.err.println("EngineMetrics: not registered with JMX: " + jme.getMessage());
+        } // try
+    } // register
+
+    /**
+     * A concurrent latency histogram. Values are counted in buckets that split every power of
+     * two into four, so a percentile is reported as the upper end of its bucket, at most 25%
+     * above the true value. Recording is one atomic add and needs no lock.
+     */
+    static final class Histogram {
+
+        /** Number of buckets: four for each power of two below {@code 2^63}. */
+        private static final int BUCKETS = 248;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Count one value.
+         *
+         * @param value the value; negative values count as {@code 0}
+         */
+        void record(long value) {
+            value = Math.max(0, value);
+            this.counts.incrementAndGet(bucket(value));
+            this.max.accumulate(value);
+        } // record
+
+        /**
+         * Return the value below which fraction {@code q} of the recorded values lie.
+         *
+         * @param q the fraction, from {@code 0} to {@code 1}
+         * @return the upper end of the bucket holding that value, or {@code 0} if nothing has
+         *         been recorded
+         */
+        long percentile(double q) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += this.counts.get(i);
+            } // for
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS && total > 0; i++) {
+                seen += this.counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upper(i), max());
+                } // if
+            } // for
+            return 0;
+        } // percentile
+
+        /**
+         * Return the largest value recorded.
+         *
+         * @return the maximum, or {@code 0} if nothing has been recorded
+         */
+        long max() {
+            return this.max.get();
+        } // max
+
+        /**
+         * Forget every value recorded.
+         */
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.counts.set(i, 0);
+            } // for
+            this.max.reset();
+        } // reset
+
+        /**
+         * Return the bucket of a value: values below {@code 4} have their own buckets, and
+         * every range {@code [2^e, 2^(e+1))} above is split into four by the two bits after
+         * the leading one.
+         *
+         * @param value a non-negative value
+         * @return the bucket index
+         */
+        static int bucket(long value) {
+            if (value < 4) {
+                return (int) value;
+            } // if
+            int e = 63 - Long.numberOfLeadingZeros(value);
+            return (e - 1) * 4 + (int) (value >>> (e - 2)) - 4;
+        } // bucket
+
+        /**
+         * Return the largest value that falls into bucket {@code i}.
+         *
+         * @param i a bucket index
+         * @return the bucket's upper end
+         */
+        static long upper(int i) {
+            if (i < 4) {
+                return i;
+            } // if
+            int e = i / 4 + 1;
+            long m = i % 4 + 4;
+            return ((m + 1) << (e - 2)) - 1;
+        } // upper
+
+    } // Histogram
+
+} // EngineMetrics
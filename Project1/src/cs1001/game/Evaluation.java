@@ -0,0 +1,211 @@
+package cs1001.game;
+
+/**
+ * A heuristic score for a {@link cs1001.game.BitBoard} position that is kept up to date one
+ * drop at a time, for depth-limited searches that cannot reach the end of the game. Every drop
+ * and undo touches only the (at most 16) four-cell windows through the cell involved, so
+ * updating the score costs the same on a 9x9 grid as on a 6x7 one, and reading it is free.
+ *
+ * <p>
+ * The score is the sum of three terms, each counted for one player and against the other:
+ * <ul>
+ * <li><em>lines:</em> every window that holds {@code k} tokens of one player and none of the
+ * other is still winnable for that player and scores {@link #LINE LINE[k]}, so open
+ * three-in-a-rows count most;</li>
+ * <li><em>center control:</em> each token scores the number of windows through its cell, which
+ * is highest in the center of the grid;</li>
+ * <li><em>threat parity:</em> an empty cell that would complete a four for a player is a
+ * threat. Late in the game the first player can usually force the use of threats on odd rows
+ * (counted from the bottom, starting at 1) and the second player those on even rows, so a
+ * threat on the player's own parity scores {@link #GOOD_THREAT} and any other threat
+ * {@link #THREAT}. A cell counts once however many windows it completes.</li>
+ * </ul>
+ *
+ * <p>
+ * The caller keeps the evaluation in step with its board: call {@link #drop} after each drop
+ * and {@link #undo} after each undo, with the cell that changed.
+ */
+final class Evaluation {
+
+    /**
+     * Score of a window by the number of tokens of one player in it, if the other has none. A
+     * full four ends the game, which searches score on their own, so it adds nothing here.
+     */
+    static final int[] LINE = {0, 1, 4, 32, 0};
+
+    /** Score of a threat cell on the player's own parity row. */
+    static final int GOOD_THREAT = 48;
+
+    /** Score of any other threat cell. */
+    static final int THREAT = 8;
+
+    private final WinTable wins; // windows of this grid size
+    private final int rows; // number of grid rows
+    private final byte[] cells; // owner of each cell plus one, or 0 if empty (index col*rows+h)
+    private final byte[][] tokens; // tokens of each player in each window
+    private final byte[][] threats; // windows each empty cell would complete, per player
+    private final int[] weight; // center-control weight of each cell
+    private int score; // sum of all terms for player 0, minus the same for player 1
+
+    /**
+     * Constructs the evaluation of {@code board}, computed from scratch.
+     *
+     * @param board the position to evaluate
+     */
+    Evaluation(BitBoard board) {
+        this.wins = board.wins;
+        this.rows = board.rows;
+        int size = board.rows * board.cols;
+        this.cells = new byte[size];
+        this.tokens = new byte[2][this.wins.windows];
+        this.threats = new byte[2][size];
+        this.weight = new int[size];
+        for (int col = 0; col < board.cols; col++) {
+            for (int h = 0; h < board.rows; h++) {
+                this.weight[col * this.rows + h] = this.wins.end(h, col) - this.wins.first(h, col);
+            } // for
+        } // for
+        for (int col = 0; col < board.cols; col++) {
+            for (int h = 0; h < board.height[col]; h++) {
+                drop(board.owner(h, col), h, col);
+            } // for
+        } // for
+    } // Evaluation
+
+    /**
+     * Constructs a copy of {@code other} that can be updated independently.
+     *
+     * @param other the evaluation to copy
+     */
+    Evaluation(Evaluation other) {
+        this.wins = other.wins;
+        this.rows = other.rows;
+        this.cells = other.cells.clone();
+        this.tokens = new byte[][] {other.tokens[0].clone(), other.tokens[1].clone()};
+        this.threats = new byte[][] {other.threats[0].clone(), other.threats[1].clone()};
+        this.weight = other.weight;
+        this.score = other.score;
+    } // Evaluation
+
+    /**
+     * Return the score for {@code player}: positive if the position looks better for
+     * {@code player} than for the opponent.
+     *
+     * @param player the player ({@code 0} or {@code 1})
+     * @return the heuristic score
+     */
+    int score(int player) {
+        return player == 0 ? this.score : -this.score;
+    } // score
+
+    /**
+     * Account for {@code player}'s token having been dropped into the cell at height {@code h}
+     * (counted from the bottom) in column {@code col}.
+     *
+     * @param player the player who dropped
+     * @param h the cell's height
+     * @param col the cell's column index
+     */
+    void drop(int player, int h, int col) {
+        int cell = col * this.rows + h;
+        int other = 1 - player;
+        int sign = player == 0 ? 1 : -1;
+        this.cells[cell] = (byte) (player + 1);
+        this.score += sign * this.weight[cell];
+        byte[] mine = this.tokens[player];
+        byte[] theirs = this.tokens[other];
+        for (int i = this.wins.first(h, col), end = this.wins.end(h, col); i < end; i++) {
+            int w = this.wins.windowId(i);
+            int a = mine[w];
+            int b = theirs[w];
+            if (b == 0) {
+                this.score += sign * (LINE[a + 1] - LINE[a]);
+                if (a == 2) { // three now: the last empty cell is a threat
+                    addThreat(player, emptyCell(w, -1), 1);
+                } else if (a == 3) { // four: this cell was the threat
+                    addThreat(player, cell, -1);
+                } // if
+            } else if (a == 0) { // the window is now dead for the opponent
+                this.score += sign * LINE[b];
+                if (b == 3) { // and this cell was their threat
+                    addThreat(other, cell, -1);
+                } // if
+            } // if
+            mine[w] = (byte) (a + 1);
+        } // for
+    } // drop
+
+    /**
+     * Account for {@code player}'s token having been taken back from the cell at height
+     * {@code h} (counted from the bottom) in column {@code col}.
+     *
+     * @param player the player whose token was taken back
+     * @param h the cell's height
+     * @param col the cell's column index
+     */
+    void undo(int player, int h, int col) {
+        int cell = col * this.rows + h;
+        int other = 1 - player;
+        int sign = player == 0 ? 1 : -1;
+        byte[] mine = this.tokens[player];
+        byte[] theirs = this.tokens[other];
+        for (int i = this.wins.first(h, col), end = this.wins.end(h, col); i < end; i++) {
+            int w = this.wins.windowId(i);
+            int a = mine[w];
+            int b = theirs[w];
+            if (b == 0) {
+                this.score -= sign * (LINE[a] - LINE[a - 1]);
+                if (a == 3) { // back to two: the other empty cell is no longer a threat
+                    addThreat(player, emptyCell(w, cell), -1);
+                } else if (a == 4) { // back to three: this cell is a threat again
+                    addThreat(player, cell, 1);
+                } // if
+            } else if (a == 1) { // the window is live again for the opponent
+                this.score -= sign * LINE[b];
+                if (b == 3) { // and this cell is their threat again
+                    addThreat(other, cell, 1);
+                } // if
+            } // if
+            mine[w] = (byte) (a - 1);
+        } // for
+        this.cells[cell] = 0;
+        this.score -= sign * this.weight[cell];
+    } // undo
+
+    /**
+     * Change the number of windows that {@code cell} would complete for {@code player} by
+     * {@code delta}, and update the threat term when the cell starts or stops being a threat.
+     *
+     * @param player the player
+     * @param cell the cell index
+     * @param delta {@code 1} or {@code -1}
+     */
+    private void addThreat(int player, int cell, int delta) {
+        int before = this.threats[player][cell];
+        this.threats[player][cell] = (byte) (before + delta);
+        if (before == 0 || before + delta == 0) { // the cell became, or stopped being, a threat
+            boolean ownParity = (cell % this.rows) % 2 == player; // h even is an odd row
+            int value = ownParity ? GOOD_THREAT : THREAT;
+            this.score += (player == 0 ? delta : -delta) * value;
+        } // if
+    } // addThreat
+
+    /**
+     * Return the empty cell of window {@code w}, skipping {@code skip}.
+     *
+     * @param w the window number
+     * @param skip a cell to ignore, or {@code -1}
+     * @return the first empty cell of the window other than {@code skip}
+     */
+    private int emptyCell(int w, int skip) {
+        int[] members = this.wins.windowCells;
+        for (int i = 4 * w; i < 4 * w + 4; i++) {
+            int cell = members[i];
+            if (cell != skip && this.cells[cell] == 0) {
+                return cell;
+            } // if
+        } // for
+        throw new AssertionError("window " + w + " has no empty cell");
+    } // emptyCell
+
+} // Evaluation
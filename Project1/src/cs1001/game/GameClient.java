@@ -0,0 +1,243 @@
+package cs1001.game;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A load generator for {@link cs1001.game.GameServer}. Every simulated client opens its own
+ * connection, then plays {@code games} games one after another, holding both seats and dropping
+ * into random non-full columns until each game is over. The round trip of every {@code DROP}
+ * is timed, and the run reports the move rate and the median and 99th-percentile move latency.
+ *
+ * <pre>
+ * $ java cs1001.game.GameClient 1000 10                  # against a server in this JVM
+ * $ java cs1001.game.GameClient 1000 10 localhost 4000   # against a running server
+ * </pre>
+ */
+public final class GameClient {
+
+    /**
+     * No instances: all methods are static.
+     */
+    private GameClient() {
+    } // GameClient
+
+    /**
+     * The outcome of a load run. Latencies are round trips of single {@code DROP} requests.
+     *
+     * @param clients the number of concurrent connections
+     * @param games the number of games played in total
+     * @param moves the number of drops made in total
+     * @param nanos the wall-clock time of the run, in nanoseconds
+     * @param p50 the median move latency, in nanoseconds
+     * @param p99 the 99th-percentile move latency, in nanoseconds
+     * @param max the largest move latency, in nanoseconds
+     */
+    public record Report(int clients, long games, long moves, long nanos, long p50, long p99,
+            long max) {
+
+        /**
+         * Return the throughput.
+         *
+         * @return drops per second over all clients
+         */
+        public double movesPerSecond() {
+            return nanos == 0 ? 0 : moves * 1e9 / nanos;
+        } // movesPerSecond
+
+        /**
+         * Return a one-line summary, with latencies in microseconds.
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            return "%d clients, %d games, %d moves in %.2f s (%.0f moves/s); ".formatted(clients,
+                    games, moves, nanos / 1e9, movesPerSecond())
+                    + "latency p50 %.1f us, p99 %.1f us, max %.1f us".formatted(p50 / 1e3,
+                    p99 / 1e3, max / 1e3);
+        } // toString
+
+    } // Report
+
+    /**
+     * Connect {@code clients} clients to the server at {@code host:port} at once, and have each
+     * play {@code games} games on a {@code rows}-by-{@code cols} grid.
+     *
+     * @param host the server host
+     * @param port the server port
+     * @param clients the number of concurrent connections
+     * @param games the number of games per connection
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param seed the seed for the clients' random columns
+     * @return the report
+     * @throws IllegalArgumentException if {@code clients < 1} or {@code games < 1}
+     * @throws IOException if a client cannot talk to the server
+     */
+    public static Report run(String host, int port, int clients, int games, int rows, int cols,
+            long seed) throws IOException {
+        if (clients < 1 || games < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need at least one client and one game.");
+        } // if
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            SplittableRandom random = seeds.split();
+            tasks.add(() -> play(host, port, games, rows, cols, random));
+        } // for
+        ExecutorService pool = GameServer.newThreadPerTaskExecutor();
+        long start = System.nanoTime();
+        long[][] latencies = new long[clients][];
+        try {
+            List<Future<long[]>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < clients; i++) {
+                latencies[i] = results.get(i).get();
+            } // for
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", ie);
+        } catch (ExecutionException ee) {
+            throw new IOException("client failed: " + ee.getCause(), ee.getCause());
+        } finally {
+            pool.shutdown();
+        } // try
+        long nanos = System.nanoTime() - start;
+        int moves = 0;
+        for (long[] l : latencies) {
+            moves += l.length;
+        } // for
+        long[] all = new long[moves];
+        int n = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, all, n, l.length);
+            n += l.length;
+        } // for
+        Arrays.sort(all);
+        return new Report(clients, (long) clients * games, moves, nanos, percentile(all, 0.50),
+                percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1]);
+    } // run
+
+    /**
+     * Play {@code games} games over one connection.
+     *
+     * @param host the server host
+     * @param port the server port
+     * @param games the number of games to play
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param random the source of columns
+     * @return the latency of every drop, in nanoseconds
+     * @throws IOException if the connection fails or the server replies with an error
+     */
+    private static long[] play(String host, int port, int games, int rows, int cols,
+            SplittableRandom random) throws IOException {
+        long[] latencies = new long[games * rows * cols];
+        int moves = 0;
+        int[] heights = new int[cols];
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                     socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+            for (int g = 0; g < games; g++) {
+                String id = request(in, out, "CREATE " + rows + " " + cols + " RED BLUE")[1];
+                request(in, out, "JOIN " + id);
+                Arrays.fill(heights, 0);
+                String phase;
+                do {
+                    int col;
+                    do {
+                        col = random.nextInt(cols);
+                    } while (heights[col] == rows);
+                    long start = System.nanoTime();
+                    String[] reply = request(in, out, "DROP " + id + " " + col);
+                    latencies[moves++] = System.nanoTime() - start;
+                    heights[col]++;
+                    phase = reply[3];
+                } while (!phase.equals("OVER"));
+            } // for
+            request(in, out, "QUIT");
+        } // try
+        return Arrays.copyOf(latencies, moves);
+    } // play
+
+    /**
+     * Send one request and read its reply.
+     *
+     * @param in the connection's input
+     * @param out the connection's output
+     * @param line the request
+     * @return the words of an {@code OK} reply
+     * @throws IOException if the connection fails or the reply is an error
+     */
+    private static String[] request(BufferedReader in, BufferedWriter out, String line)
+            throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null || !reply.startsWith("OK")) {
+            throw new IOException(line + ": " + reply);
+        } // if
+        return reply.split(" ");
+    } // request
+
+    /**
+     * Return the value at fraction {@code q} of a sorted array (nearest rank).
+     *
+     * @param sorted the values, in ascending order
+     * @param q the fraction, from {@code 0} to {@code 1}
+     * @return the percentile, or {@code 0} if the array is empty
+     */
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        } // if
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    } // percentile
+
+    /**
+     * Run a load test and print its report.
+     *
+     * <pre>
+     * java cs1001.game.GameClient [clients [games [host port]]]
+     * </pre>
+     *
+     * <p>
+     * Defaults are 100 clients and 10 games each on a 6x7 grid. Without a host, a
+     * {@link cs1001.game.GameServer} is started in this JVM on a free port.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the server cannot be started or reached
+     */
+    public static void main(String[] args) throws IOException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (args.length > 3) {
+            System.out.println(run(args[2], Integer.parseInt(args[3]), clients, games, 6, 7, 1));
+            return;
+        } // if
+        try (GameServer server = new GameServer(0)) {
+            server.start();
+            System.out.println(run("localhost", server.getPort(), clients, games, 6, 7, 1));
+        } // try
+    } // main
+
+} // GameClient
@@ -0,0 +1,362 @@
+package cs1001.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A bulk loader for game files in the format described by
+ * {@link cs1001.game.ConnectFour#fromFile}.
+ * It is meant for archives of many thousands of files: a directory is loaded in parallel, each
+ * file is read with NIO into a per-thread buffer and split by a small hand-written tokenizer
+ * instead of a {@link java.util.Scanner}, and the results come out as a
+ * {@link java.util.stream.Stream}, so the caller decides how many games to keep in memory.
+ *
+ * <p>
+ * Files are checked more strictly than {@code fromFile} does; a file that breaks a rule below
+ * yields a {@link Result} with an error message instead of a game:
+ * <ul>
+ * <li>the grid size, token names and cell values ({@code 0}, {@code 1} or {@code 3}) must be
+ * valid, and the file must end after the last drop position;</li>
+ * <li>no token may float above an empty cell;</li>
+ * <li>the last drop must be the top token of its column;</li>
+ * <li>if the grid has a connect four, it must run through the last drop.</li>
+ * </ul>
+ *
+ * <p>
+ * Tokens end up in the cells where the file draws them, top row first. (For files whose
+ * columns hold more than one color, this differs from {@code fromFile}, which drops each
+ * column's tokens in file order and so stacks them upside down.)
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * try (Stream&lt;GameLoader.Result&gt; results = GameLoader.loadAll(Path.of("archive"))) {
+ *     results.filter(GameLoader.Result::isValid).forEach(r -&gt; analyze(r.game()));
+ * } // try
+ * </pre>
+ */
+public final class GameLoader {
+
+    /** All tokens, indexed by ordinal. */
+    private static final Token[] TOKENS = Token.values();
+
+    /** Token names as bytes, indexed by ordinal, for matching without creating strings. */
+    private static final byte[][] TOKEN_NAMES = tokenNames();
+
+    /** Per-thread read buffer; grows to the largest file seen by that thread. */
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+
+    /**
+     * No instances: all methods are static.
+     */
+    private GameLoader() {
+    } // GameLoader
+
+    /**
+     * The outcome of loading one file: either a game or an error message.
+     *
+     * @param file the file that was read
+     * @param game the loaded game, or {@code null} if the file is not valid
+     * @param error why the file is not valid, or {@code null} if it is
+     */
+    public record Result(Path file, ConnectFour game, String error) {
+
+        /**
+         * Return whether the file held a valid game.
+         *
+         * @return {@code true} if {@link #game} is set
+         */
+        public boolean isValid() {
+            return game != null;
+        } // isValid
+
+    } // Result
+
+    /**
+     * Return a parallel stream of the results of loading every regular file directly inside
+     * {@code dir}. The directory is listed up front, in name order; files are then read and
+     * parsed lazily, as the stream is consumed.
+     *
+     * @param dir the directory to load
+     * @return the results, one per file
+     * @throws IOException if the directory cannot be listed
+     */
+    public static Stream<Result> loadAll(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing.filter(Files::isRegularFile).sorted().toList();
+        } // try
+        return files.parallelStream().map(GameLoader::load);
+    } // loadAll
+
+    /**
+     * Load one game file.
+     *
+     * @param file the file
+     * @return the game, or the reason the file could not be loaded
+     */
+    public static Result load(Path file) {
+        try {
+            ByteBuffer buffer = read(file);
+            return new Result(file, parse(buffer.array(), buffer.limit()), null);
+        } catch (IOException ioe) {
+            return new Result(file, null, "Cannot read: " + ioe.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return new Result(file, null, e.getMessage());
+        } // try
+    } // load
+
+    /**
+     * Read a whole file into this thread's buffer.
+     *
+     * @param file the file
+     * @return the buffer, holding the file's bytes from index {@code 0} to its limit
+     * @throws IOException if the file cannot be read
+     */
+    private static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("file too large");
+            } // if
+            ByteBuffer buffer = BUFFERS.get();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(Integer.highestOneBit((int) size) << 1);
+                BUFFERS.set(buffer);
+            } // if
+            buffer.clear();
+            while (buffer.position() < size && channel.read(buffer) >= 0) {
+                // keep reading until the whole file is in
+            } // while
+            buffer.flip();
+            return buffer;
+        } // try
+    } // read
+
+    /**
+     * Build a game from the bytes of a game file. Tokens are placed in the cells where the file
+     * draws them: each column is filled from the bottom up, and the last drop named by the file
+     * is dropped last, so that it is also the last drop of the game's move history.
+     *
+     * @param bytes the file contents
+     * @param length the number of valid bytes
+     * @return the game
+     * @throws IllegalArgumentException if the contents are not a valid game
+     * @throws IllegalStateException if the game is over before the last drop
+     */
+    static ConnectFour parse(byte[] bytes, int length) {
+        Tokenizer in = new Tokenizer(bytes, length);
+        int rows = in.nextInt();
+        int cols = in.nextInt();
+        Token token0 = in.nextToken();
+        Token token1 = in.nextToken();
+        ConnectFour game = new ConnectFour(rows, cols);
+        game.setPlayerTokens(token0, token1);
+        if (!in.hasNext()) {
+            return game; // tokens only: an empty grid
+        } // if
+        byte[] cells = new byte[rows * cols]; // row-major, top row first, as in the file
+        for (int i = 0; i < cells.length; i++) {
+            int cell = in.nextInt();
+            if (cell != 0 && cell != 1 && cell != 3) {
+                throw new IllegalArgumentException("Bad cell value: " + cell);
+            } // if
+            if (cell == 3 && i >= cols && cells[i - cols] != 3) {
+                throw new IllegalArgumentException(
+                        "Floating token: column " + i % cols + " has a gap below a token.");
+            } // if
+            cells[i] = (byte) cell;
+        } // for
+        int lastRow = in.nextInt();
+        int lastCol = in.nextInt();
+        if (in.hasNext()) {
+            throw new IllegalArgumentException("Trailing input after the last drop position.");
+        } // if
+        if (!game.isInBounds(lastRow, lastCol) || cells[lastRow * cols + lastCol] == 3
+                || (lastRow > 0 && cells[(lastRow - 1) * cols + lastCol] != 3)) {
+            throw new IllegalArgumentException("Bad last drop: (%d, %d) is not the top token "
+                    .formatted(lastRow, lastCol) + "of a column.");
+        } // if
+        for (int col = 0; col < cols; col++) {
+            int top = col == lastCol ? lastRow + 1 : 0; // leave the last drop for the end
+            for (int row = rows - 1; row >= top && cells[row * cols + col] != 3; row--) {
+                if (game.getPhase() == GamePhase.OVER) {
+                    throw new IllegalStateException(
+                            "Wrong phase: The grid has a connect four not made by its last drop.");
+                } // if
+                game.dropToken(cells[row * cols + col], col);
+            } // for
+        } // for
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: The grid has a connect four not made by its last drop.");
+        } // if
+        game.dropToken(cells[lastRow * cols + lastCol], lastCol);
+        return game;
+    } // parse
+
+    /**
+     * Return the names of all tokens as ASCII bytes, indexed by ordinal.
+     *
+     * @return the token names
+     */
+    private static byte[][] tokenNames() {
+        byte[][] names = new byte[TOKENS.length][];
+        for (int i = 0; i < TOKENS.length; i++) {
+            names[i] = TOKENS[i].name().getBytes(StandardCharsets.US_ASCII);
+        } // for
+        return names;
+    } // tokenNames
+
+    /**
+     * Splits the bytes of a game file into whitespace-separated integers and token names.
+     * Nothing is allocated per item.
+     */
+    private static final class Tokenizer {
+
+        private final byte[] bytes; // file contents
+        private final int length; // number of valid bytes
+        private int pos; // index of the next unread byte
+
+        /**
+         * Constructs a tokenizer over {@code bytes[0..length)}.
+         *
+         * @param bytes the file contents
+         * @param length the number of valid bytes
+         */
+        Tokenizer(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+            this.pos = 0;
+        } // Tokenizer
+
+        /**
+         * Return whether anything but whitespace is left.
+         *
+         * @return {@code true} if another item follows
+         */
+        boolean hasNext() {
+            skipSpace();
+            return this.pos < this.length;
+        } // hasNext
+
+        /**
+         * Return the next item as a non-negative decimal integer.
+         *
+         * @return the integer
+         * @throws IllegalArgumentException if the input ends or the item is not a number
+         */
+        int nextInt() {
+            int start = start();
+            int value = 0;
+            while (this.pos < this.length && !isSpace(this.bytes[this.pos])) {
+                int digit = this.bytes[this.pos] - '0';
+                if (digit < 0 || digit > 9 || value > 100_000_000) {
+                    throw new IllegalArgumentException("Bad number at byte " + start + ".");
+                } // if
+                value = value * 10 + digit;
+                this.pos++;
+            } // while
+            return value;
+        } // nextInt
+
+        /**
+         * Return the next item as a token name.
+         *
+         * @return the token
+         * @throws IllegalArgumentException if the input ends or the item names no token
+         */
+        Token nextToken() {
+            int start = start();
+            while (this.pos < this.length && !isSpace(this.bytes[this.pos])) {
+                this.pos++;
+            } // while
+            int n = this.pos - start;
+            for (int i = 0; i < TOKEN_NAMES.length; i++) {
+                byte[] name = TOKEN_NAMES[i];
+                if (name.length == n && Arrays.equals(name, 0, n, this.bytes, start, this.pos)) {
+                    return TOKENS[i];
+                } // if
+            } // for
+            throw new IllegalArgumentException("Unknown token at byte " + start + ".");
+        } // nextToken
+
+        /**
+         * Skip whitespace and return the index where the next item starts.
+         *
+         * @return the item's first byte index
+         * @throws IllegalArgumentException if the input has ended
+         */
+        private int start() {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Truncated file: more input expected.");
+            } // if
+            return this.pos;
+        } // start
+
+        /**
+         * Move past any whitespace.
+         */
+        private void skipSpace() {
+            while (this.pos < this.length && isSpace(this.bytes[this.pos])) {
+                this.pos++;
+            } // while
+        } // skipSpace
+
+        /**
+         * Return whether {@code b} is an ASCII whitespace byte.
+         *
+         * @param b the byte
+         * @return {@code true} for space, tab, line feed, carriage return or form feed
+         */
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+        } // isSpace
+
+    } // Tokenizer
+
+    /**
+     * Load every file in a directory and print how many games and errors were found, the first
+     * few errors, and the load rate.
+     *
+     * @param args the directory to load
+     * @throws IOException if the directory cannot be listed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: java cs1001.game.GameLoader <directory>");
+            return;
+        } // if
+        long start = System.nanoTime();
+        LongAdder games = new LongAdder();
+        AtomicLong errors = new AtomicLong();
+        try (Stream<Result> results = loadAll(Path.of(args[0]))) {
+            results.forEach(result -> {
+                if (result.isValid()) {
+                    games.increment();
+                } else if (errors.getAndIncrement() < 10) {
+                    System.out.println(result.file() + ": " + result.error());
+                } // if
+            });
+        } // try
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = games.sum() + errors.get();
+        System.out.printf("%d games, %d errors in %.3f s (%.0f files/s)\n", games.sum(),
+                errors.get(), seconds, total / seconds);
+    } // main
+
+} // GameLoader
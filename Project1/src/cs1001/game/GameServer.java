@@ -0,0 +1,407 @@
+package cs1001.game;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import cs1302.gameutil.Token;
+
+/**
+ * A TCP server that hosts any number of {@link cs1001.game.ConnectFour} games in one JVM.
+ * Clients speak a line-oriented text protocol: every request is one line, and every request
+ * gets exactly one reply line, starting with {@code OK} or {@code ERR}.
+ *
+ * <pre>
+ * CREATE rows cols token0 token1   -&gt; OK id 0        (new game; this connection plays 0)
+ * JOIN id                          -&gt; OK id 1        (this connection plays 1)
+ * DROP id col                      -&gt; OK row col phase
+ * STATE id                         -&gt; OK phase next dropped cells
+ * QUIT                             -&gt; OK bye         (the server closes the connection)
+ * </pre>
+ *
+ * <p>
+ * {@code DROP} drops a token for the player whose turn it is, which must be a seat held by
+ * this connection; one connection may hold both seats of a game. In a {@code STATE} reply,
+ * {@code next} is the player to drop next and {@code cells} lists the grid row by row, top row
+ * first, as {@code 0}, {@code 1} or {@code .} for an empty cell. Errors are reported as
+ * {@code ERR} and a message, and leave the connection open.
+ *
+ * <p>
+ * Each connection is served by its own thread: a virtual thread when the JVM has them (Java
+ * 21 or later), otherwise a thread from a cached pool. Sessions live in a
+ * {@link java.util.concurrent.ConcurrentHashMap}; each game is guarded by its own lock, so
+ * moves in different games never contend. A game is removed once every connection that held a
+ * seat in it has closed.
+ *
+ * <pre>
+ * $ java cs1001.game.GameServer 4000
+ * </pre>
+ */
+public final class GameServer implements AutoCloseable {
+
+    /** Port used when none is given on the command line. */
+    static final int DEFAULT_PORT = 4000;
+
+    private final ServerSocket socket; // accepts connections
+    private final ExecutorService connections; // one task per connection
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private volatile boolean closed;
+
+    /**
+     * A hosted game and its seats.
+     */
+    private static final class Session {
+
+        private final ConnectFour game; // guarded by this session
+        private boolean joined; // whether seat 1 has been taken
+        private int holders; // connections holding a seat
+        private boolean closed; // whether the session was removed; nobody may join it then
+
+        /**
+         * Constructs a session for {@code game}, with seat 0 taken.
+         *
+         * @param game the game
+         */
+        Session(ConnectFour game) {
+            this.game = game;
+            this.holders = 1;
+        } // Session
+
+    } // Session
+
+    /**
+     * Constructs a server listening on {@code port} on all interfaces. Call {@link #start} to
+     * begin accepting connections.
+     *
+     * @param port the port, or {@code 0} for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        this.socket = new ServerSocket();
+        this.socket.setReuseAddress(true);
+        this.socket.bind(new InetSocketAddress(port), 1024);
+        this.connections = newThreadPerTaskExecutor();
+    } // GameServer
+
+    /**
+     * Return the port this server listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return this.socket.getLocalPort();
+    } // getPort
+
+    /**
+     * Return the number of games currently hosted.
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+        return this.sessions.size();
+    } // getSessionCount
+
+    /**
+     * Start accepting connections on a background thread and return.
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "GameServer-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    } // start
+
+    /**
+     * Stop accepting connections and close the listening socket. Open connections are served
+     * until their clients disconnect.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.socket.close();
+        this.connections.shutdown();
+    } // close
+
+    /**
+     * Accept connections until the server is closed, handing each to its own thread.
+     */
+    private void acceptLoop() {
+        while (!this.closed) {
+            try {
+                Socket client = this.socket.accept();
+                client.setTcpNoDelay(true);
+                this.connections.execute(() -> serve(client));
+            } catch (IOException ioe) {
+                if (!this.closed) {
+                    System.err.println("accept failed: " + ioe.getMessage());
+                } // if
+            } // try
+        } // while
+    } // acceptLoop
+
+    /**
+     * Serve one connection until the client quits or disconnects.
+     *
+     * @param client the connection
+     */
+    private void serve(Socket client) {
+        Map<Long, Integer> seats = new HashMap<>(); // game id -> bit set of seats held
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     client.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                     client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply;
+                try {
+                    reply = handle(line.trim().split("\\s+"), seats);
+                } catch (RuntimeException e) { // bad input or an illegal move
+                    reply = "ERR " + e.getMessage();
+                } // try
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+                if (reply.equals("OK bye")) {
+                    break;
+                } // if
+            } // while
+        } catch (SocketException se) {
+            // the client went away; nothing to reply to
+        } catch (IOException ioe) {
+            System.err.println("connection failed: " + ioe.getMessage());
+        } finally {
+            release(seats);
+        } // try
+    } // serve
+
+    /**
+     * Carry out one request.
+     *
+     * @param words the request, split into words
+     * @param seats the seats held by the requesting connection
+     * @return the reply line
+     */
+    private String handle(String[] words, Map<Long, Integer> seats) {
+        return switch (words[0].toUpperCase()) {
+            case "CREATE" -> create(words, seats);
+            case "JOIN" -> join(words, seats);
+            case "DROP" -> drop(words, seats);
+            case "STATE" -> state(words);
+            case "QUIT" -> "OK bye";
+            default -> "ERR Bad argument: Unknown command " + words[0] + ".";
+        };
+    } // handle
+
+    /**
+     * {@code CREATE rows cols token0 token1}: host a new game, with this connection as
+     * player 0.
+     *
+     * @param words the request
+     * @param seats the seats held by the requesting connection
+     * @return the reply line
+     */
+    private String create(String[] words, Map<Long, Integer> seats) {
+        expect(words, 5);
+        ConnectFour game = new ConnectFour(Integer.parseInt(words[1]),
+                Integer.parseInt(words[2]));
+        game.setPlayerTokens(Token.valueOf(words[3].toUpperCase()),
+                Token.valueOf(words[4].toUpperCase()));
+        long id = this.nextId.getAndIncrement();
+        this.sessions.put(id, new Session(game));
+        seats.put(id, 1);
+        return "OK " + id + " 0";
+    } // create
+
+    /**
+     * {@code JOIN id}: take seat 1 of a game.
+     *
+     * @param words the request
+     * @param seats the seats held by the requesting connection
+     * @return the reply line
+     */
+    private String join(String[] words, Map<Long, Integer> seats) {
+        expect(words, 2);
+        long id = Long.parseLong(words[1]);
+        Session session = session(id);
+        synchronized (session) {
+            if (session.closed) { // released after it was looked up
+                return "ERR Bad argument: No game " + id + ".";
+            } // if
+            if (session.joined) {
+                return "ERR Wrong phase: Game " + id + " already has two players.";
+            } // if
+            session.joined = true;
+            if (!seats.containsKey(id)) {
+                session.holders++;
+            } // if
+        } // synchronized
+        seats.merge(id, 2, (a, b) -> a | b);
+        return "OK " + id + " 1";
+    } // join
+
+    /**
+     * {@code DROP id col}: drop a token for the player whose turn it is, if this connection
+     * holds that seat.
+     *
+     * @param words the request
+     * @param seats the seats held by the requesting connection
+     * @return the reply line
+     */
+    private String drop(String[] words, Map<Long, Integer> seats) {
+        expect(words, 3);
+        long id = Long.parseLong(words[1]);
+        int col = Integer.parseInt(words[2]);
+        Session session = session(id);
+        synchronized (session) {
+            ConnectFour game = session.game;
+            int player = game.nextPlayer();
+            if ((seats.getOrDefault(id, 0) & 1 << player) == 0) {
+                return "ERR Wrong phase: It is not your turn in game " + id + ".";
+            } // if
+            game.dropToken(player, col);
+            return "OK " + game.getLastDropRow() + " " + col + " " + game.getPhase();
+        } // synchronized
+    } // drop
+
+    /**
+     * {@code STATE id}: describe a game.
+     *
+     * @param words the request
+     * @return the reply line
+     */
+    private String state(String[] words) {
+        expect(words, 2);
+        Session session = session(Long.parseLong(words[1]));
+        synchronized (session) {
+            return "OK " + describe(session.game);
+        } // synchronized
+    } // state
+
+    /**
+     * Return the session with the given id.
+     *
+     * @param id the game id
+     * @return the session
+     * @throws IllegalArgumentException if there is no such game
+     */
+    private Session session(long id) {
+        Session session = this.sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("Bad argument: No game " + id + ".");
+        } // if
+        return session;
+    } // session
+
+    /**
+     * Give up all seats held by a closed connection, removing games nobody holds a seat in.
+     *
+     * @param seats the seats the connection held
+     */
+    private void release(Map<Long, Integer> seats) {
+        for (long id : seats.keySet()) {
+            Session session = this.sessions.get(id);
+            if (session == null) {
+                continue;
+            } // if
+            synchronized (session) {
+                if (--session.holders == 0) {
+                    session.closed = true;
+                    this.sessions.remove(id);
+                } // if
+            } // synchronized
+        } // for
+    } // release
+
+    /**
+     * Return the body of a {@code STATE} reply.
+     *
+     * @param game the game
+     * @return phase, next player, number of tokens and cells
+     */
+    private static String describe(ConnectFour game) {
+        int rows = game.getRows();
+        int cols = game.getCols();
+        Position position = game.snapshot();
+        StringBuilder text = new StringBuilder(rows * cols + 24);
+        text.append(game.getPhase()).append(' ').append(position.getNextPlayer()).append(' ')
+                .append(position.getNumDropped()).append(' ');
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                text.append(".01".charAt(position.getPlayerAt(row, col) + 1));
+            } // for
+        } // for
+        return text.toString();
+    } // describe
+
+    /**
+     * Check the number of words in a request.
+     *
+     * @param words the request
+     * @param count the expected number of words, command included
+     * @throws IllegalArgumentException if the count is wrong
+     */
+    private static void expect(String[] words, int count) {
+        if (words.length != count) {
+            throw new IllegalArgumentException("Bad argument: " + words[0] + " takes "
+                    + (count - 1) + " argument(s).");
+        } // if
+    } // expect
+
+    /**
+     * Return an executor that runs every task on a new virtual thread, or, on a JVM without
+     * virtual threads, on a cached pool of platform threads. The virtual-thread factory is
+     * looked up reflectively so that this class still compiles and runs on Java 17.
+     *
+     * @return the executor
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException e) { // before Java 21, or preview not enabled
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        } // try
+    } // newThreadPerTaskExecutor
+
+    /**
+     * Run a server until the process is killed.
+     *
+     * <pre>
+     * java cs1001.game.GameServer [port]
+     * </pre>
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(port);
+        System.out.println("Serving Connect Four on port " + server.getPort());
+        if (EngineMetrics.isEnabled()) {
+            System.out.println("Engine metrics on, JMX name " + EngineMetrics.OBJECT_NAME);
+        } // if
+        server.acceptLoop();
+    } // main
+
+} // GameServer
@@ -0,0 +1,470 @@
+package cs1001.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A Monte Carlo Tree Search (MCTS) player for {@link cs1001.game.ConnectFour}. Instead of
+ * searching the whole game tree like {@link cs1001.game.ConnectFourSolver}, it grows a tree
+ * towards the columns that look best so far (UCB1 selection) and rates each new position by
+ * playing one random game to the end (a <em>playout</em>). This gives a strong opponent on
+ * grids where exhaustive search is far too slow, such as 9x9.
+ *
+ * <p>
+ * A move is chosen within a budget of either a number of playouts or a wall-clock time. The
+ * search uses <em>root parallelism</em>: every thread grows its own independent tree from the
+ * same position, with its own random seed, and at the end the visit counts of the root's
+ * columns are added up over all trees. The most visited column is played. Threads share
+ * nothing while searching, so they never wait on each other.
+ *
+ * <p>
+ * Playouts run in place on a per-thread {@link cs1001.game.BitBoard} and a preallocated move
+ * stack, with a hand-rolled random number generator, so they do not allocate at all; only
+ * growing the tree (one node per playout) does.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * MctsPlayer ai = MctsPlayer.withTimeBudget(500, 4);
+ * game.dropToken(player, ai.chooseColumn(game).bestCol());
+ * </pre>
+ */
+public class MctsPlayer {
+
+    /** Exploration constant of the UCB1 formula, {@code sqrt(2)}. */
+    static final double EXPLORATION = Math.sqrt(2);
+
+    /** Number of playouts between two looks at the clock under a time budget. */
+    private static final int CLOCK_INTERVAL = 64;
+
+    private final long playouts; // playout budget over all threads, or 0 for a time budget
+    private final long millis; // time budget, or 0 for a playout budget
+    private final int threads; // number of independent trees
+    private long seed; // seed of the next search
+
+    /**
+     * Constructs a player with one of the two budgets.
+     *
+     * @param playouts the playout budget, or {@code 0}
+     * @param millis the time budget in milliseconds, or {@code 0}
+     * @param threads the number of threads
+     */
+    private MctsPlayer(long playouts, long millis, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: At least one thread is needed.");
+        } // if
+        this.playouts = playouts;
+        this.millis = millis;
+        this.threads = threads;
+        this.seed = System.nanoTime();
+    } // MctsPlayer
+
+    /**
+     * Return a player that runs {@code playouts}-many playouts per move, split evenly over
+     * {@code threads}-many threads. With a fixed {@linkplain #setSeed seed} its moves are
+     * reproducible.
+     *
+     * @param playouts the number of playouts per move
+     * @param threads the number of threads
+     * @return the player
+     * @throws IllegalArgumentException if {@code playouts < 1} or {@code threads < 1}
+     */
+    public static MctsPlayer withPlayouts(long playouts, int threads) {
+        if (playouts < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: The playout budget must be positive.");
+        } // if
+        return new MctsPlayer(playouts, 0, threads);
+    } // withPlayouts
+
+    /**
+     * Return a player that searches for {@code millis} milliseconds per move on
+     * {@code threads}-many threads.
+     *
+     * @param millis the time per move, in milliseconds
+     * @param threads the number of threads
+     * @return the player
+     * @throws IllegalArgumentException if {@code millis < 1} or {@code threads < 1}
+     */
+    public static MctsPlayer withTimeBudget(long millis, int threads) {
+        if (millis < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: The time budget must be positive.");
+        } // if
+        return new MctsPlayer(0, millis, threads);
+    } // withTimeBudget
+
+    /**
+     * Set the seed of the next search. Thread {@code i} of a search uses {@code seed + i}, and
+     * each search moves the seed on, so a sequence of moves under a playout budget is
+     * reproducible.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    } // setSeed
+
+    /**
+     * The outcome of a search.
+     *
+     * @param bestCol the most visited column at the root
+     * @param winRate the average playout result through {@code bestCol} for the player to
+     *                move ({@code 1} a win, {@code 1/2} a draw, {@code 0} a loss)
+     * @param playouts the number of playouts run over all threads
+     * @param nanos the wall-clock time the search took, in nanoseconds
+     */
+    public record Result(int bestCol, double winRate, long playouts, long nanos) {
+
+        /**
+         * Return the search speed.
+         *
+         * @return playouts per second over all threads
+         */
+        public double playoutsPerSecond() {
+            return nanos == 0 ? 0 : playouts * 1e9 / nanos;
+        } // playoutsPerSecond
+
+    } // Result
+
+    /**
+     * Choose a column for the player expected to drop next in {@code game}, i.e., the opponent
+     * of whoever made the last drop (the first player if no token has been dropped yet). The
+     * game itself is not modified.
+     *
+     * @param game the game to play in
+     * @return the chosen column, with search statistics
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public Result chooseColumn(ConnectFour game) {
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: There is no column to choose once the game is over.");
+        } // if
+        BitBoard board = game.copyBoard();
+        int player = game.nextPlayer();
+        long start = System.nanoTime();
+        long deadline = this.millis == 0 ? Long.MAX_VALUE : start + this.millis * 1_000_000;
+        List<Tree> trees = new ArrayList<>();
+        for (int i = 0; i < this.threads; i++) {
+            long budget = this.millis != 0 ? Long.MAX_VALUE
+                    : this.playouts / this.threads + (i < this.playouts % this.threads ? 1 : 0);
+            trees.add(new Tree(new BitBoard(board), player, this.seed + i, budget));
+        } // for
+        this.seed += this.threads;
+        if (this.threads == 1) { // no pool needed, e.g., when called from a tournament worker
+            trees.get(0).search(deadline);
+        } else {
+            List<Callable<Tree>> searches = new ArrayList<>();
+            for (Tree tree : trees) {
+                searches.add(() -> tree.search(deadline));
+            } // for
+            ForkJoinPool pool = new ForkJoinPool(this.threads);
+            try {
+                for (Future<Tree> future : pool.invokeAll(searches)) {
+                    future.get(); // rethrow any failure
+                } // for
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching.", ie);
+            } catch (ExecutionException ee) {
+                throw new IllegalStateException("Search failed.", ee.getCause());
+            } finally {
+                pool.shutdown();
+            } // try
+        } // if
+        long[] visits = new long[board.cols];
+        long[] points = new long[board.cols];
+        long total = 0;
+        for (Tree tree : trees) {
+            total += tree.playouts;
+            for (Node child : tree.root.children) {
+                if (child != null) {
+                    visits[child.col] += child.visits;
+                    points[child.col] += child.points;
+                } // if
+            } // for
+        } // for
+        int bestCol = -1;
+        for (int col : ConnectFourSolver.centerFirst(board.cols)) {
+            if (!board.isFull(col) && (bestCol < 0 || visits[col] > visits[bestCol])) {
+                bestCol = col;
+            } // if
+        } // for
+        double winRate = visits[bestCol] == 0 ? 0.5 : points[bestCol] / 2.0 / visits[bestCol];
+        long nanos = System.nanoTime() - start;
+        if (EngineMetrics.ENABLED) {
+            EngineMetrics.searched(total, 0, 0, nanos); // a playout counts as a node
+        } // if
+        return new Result(bestCol, winRate, total, nanos);
+    } // chooseColumn
+
+    /**
+     * A node of a search tree: the position after {@link #col} was dropped into its parent's
+     * position. Results are counted in half points for the player who made that drop.
+     */
+    private static final class Node {
+
+        final int col; // column dropped to reach this node, or -1 for the root
+        final Node[] children; // child for each column, or null where not expanded yet
+        int unexpanded; // number of legal columns without a child yet
+        boolean terminal; // true if the game is over at this node
+        int terminalPoints; // half points the dropping player scores if terminal
+        long visits; // number of playouts through this node
+        long points; // half points scored by the dropping player over those playouts
+
+        /**
+         * Constructs a node reached by dropping into {@code col}.
+         *
+         * @param col the column dropped into, or {@code -1} for the root
+         * @param board the position at the node
+         */
+        Node(int col, BitBoard board) {
+            this.col = col;
+            this.children = new Node[board.cols];
+            for (int c = 0; c < board.cols; c++) {
+                if (!board.isFull(c)) {
+                    this.unexpanded++;
+                } // if
+            } // for
+        } // Node
+
+    } // Node
+
+    /**
+     * One thread's search tree, with the board, move stack and random state it plays on.
+     */
+    private static final class Tree {
+
+        final BitBoard board; // position being played on; restored after every playout
+        final int player; // player to move at the root
+        final int size; // number of cells in the grid
+        final int[] order; // center-first column order, used for expansion
+        final Node root;
+        final Node[] path; // nodes visited by the current playout, root first
+        final int[] moves; // columns dropped by the current playout, to take back
+        final int[] legal; // scratch list of open columns for random play
+        final long budget; // maximum number of playouts
+        long random; // xorshift state
+        long playouts; // number of playouts run
+
+        /**
+         * Constructs a tree rooted at {@code board}.
+         *
+         * @param board the root position (owned by the tree from now on)
+         * @param player the player to move
+         * @param seed the random seed
+         * @param budget the maximum number of playouts
+         */
+        Tree(BitBoard board, int player, long seed, long budget) {
+            this.board = board;
+            this.player = player;
+            this.size = board.rows * board.cols;
+            this.order = ConnectFourSolver.centerFirst(board.cols);
+            this.root = new Node(-1, board);
+            this.path = new Node[this.size - board.count + 1];
+            this.moves = new int[this.size - board.count];
+            this.legal = new int[board.cols];
+            this.budget = budget;
+            // scramble the seed so that neighbouring seeds give unrelated sequences
+            long z = seed * 0x9E3779B97F4A7C15L;
+            z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+            this.random = z == 0 ? 1 : z;
+        } // Tree
+
+        /**
+         * Run playouts until the budget or the deadline is used up.
+         *
+         * @param deadline the {@link System#nanoTime} value to stop at
+         * @return this tree
+         */
+        Tree search(long deadline) {
+            while (this.playouts < this.budget) {
+                if (this.playouts % CLOCK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                    break;
+                } // if
+                playout();
+                this.playouts++;
+            } // while
+            return this;
+        } // search
+
+        /**
+         * Run one playout: select a path by UCB1 down to a node with an unexpanded column, add
+         * that node, finish the game with random drops, and update the path with the result.
+         */
+        void playout() {
+            int depth = 0;
+            int mover = this.player; // player to drop next
+            Node node = this.root;
+            this.path[0] = node;
+            while (!node.terminal && node.unexpanded == 0) {
+                node = select(node);
+                this.board.drop(mover, node.col);
+                this.moves[depth++] = node.col;
+                this.path[depth] = node;
+                mover = 1 - mover;
+            } // while
+            int pointsFor0; // half points scored by player 0
+            if (node.terminal) {
+                int dropper = 1 - mover;
+                pointsFor0 = dropper == 0 ? node.terminalPoints : 2 - node.terminalPoints;
+            } else {
+                node = expand(node, mover);
+                this.moves[depth++] = node.col;
+                this.path[depth] = node;
+                mover = 1 - mover;
+                if (node.terminal) {
+                    int dropper = 1 - mover;
+                    pointsFor0 = dropper == 0 ? node.terminalPoints : 2 - node.terminalPoints;
+                } else {
+                    pointsFor0 = rollout(mover, depth);
+                } // if
+            } // if
+            // walk back up: each node is scored for the player who dropped into it
+            int dropper = 1 - mover;
+            for (int i = depth; i >= 0; i--) {
+                Node n = this.path[i];
+                n.visits++;
+                n.points += dropper == 0 ? pointsFor0 : 2 - pointsFor0;
+                dropper = 1 - dropper;
+            } // for
+            for (int i = depth - 1; i >= 0; i--) {
+                this.board.undo(this.moves[i]);
+            } // for
+        } // playout
+
+        /**
+         * Return the child of a fully expanded node with the highest UCB1 value.
+         *
+         * @param node the node
+         * @return the selected child
+         */
+        Node select(Node node) {
+            double logVisits = Math.log(node.visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : node.children) {
+                if (child == null) {
+                    continue;
+                } // if
+                double value = child.points / (2.0 * child.visits)
+                        + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                } // if
+            } // for
+            return best;
+        } // select
+
+        /**
+         * Drop {@code mover}'s token into the first unexpanded column of {@code node} and add
+         * the resulting child. The drop is left on the board.
+         *
+         * @param node the node to expand
+         * @param mover the player to move at {@code node}
+         * @return the new child
+         */
+        Node expand(Node node, int mover) {
+            int col = -1;
+            for (int c : this.order) {
+                if (node.children[c] == null && !this.board.isFull(c)) {
+                    col = c;
+                    break;
+                } // if
+            } // for
+            boolean win = this.board.isWinningDrop(mover, col);
+            this.board.drop(mover, col);
+            Node child = new Node(col, this.board);
+            if (win || this.board.count == this.size) {
+                child.terminal = true;
+                child.terminalPoints = win ? 2 : 1;
+            } // if
+            node.children[col] = child;
+            node.unexpanded--;
+            return child;
+        } // expand
+
+        /**
+         * Play random drops from the current position until someone wins or the grid is full,
+         * then take them back. Nothing is allocated.
+         *
+         * @param mover the player to move
+         * @param depth the number of entries of {@link #moves} already in use
+         * @return the half points scored by player {@code 0}
+         */
+        int rollout(int mover, int depth) {
+            BitBoard b = this.board;
+            int start = depth;
+            int result = 1; // draw unless someone wins
+            while (b.count < this.size) {
+                int open = 0;
+                for (int c = 0; c < b.cols; c++) {
+                    if (!b.isFull(c)) {
+                        this.legal[open++] = c;
+                    } // if
+                } // for
+                int col = this.legal[nextInt(open)];
+                if (b.isWinningDrop(mover, col)) {
+                    result = mover == 0 ? 2 : 0;
+                    break;
+                } // if
+                b.drop(mover, col);
+                this.moves[depth++] = col;
+                mover = 1 - mover;
+            } // while
+            for (int i = depth - 1; i >= start; i--) {
+                b.undo(this.moves[i]);
+            } // for
+            return result;
+        } // rollout
+
+        /**
+         * Return a pseudo-random number in {@code [0, bound)} (xorshift64*).
+         *
+         * @param bound the upper bound (exclusive)
+         * @return the number
+         */
+        int nextInt(int bound) {
+            long x = this.random;
+            x ^= x >>> 12;
+            x ^= x << 25;
+            x ^= x >>> 27;
+            this.random = x;
+            return (int) (((x * 0x2545F4914F6CDD1DL) >>> 32) * bound >>> 32);
+        } // nextInt
+
+    } // Tree
+
+    /**
+     * Print the playout speed on an empty 9x9 grid for each thread count from {@code 1} to the
+     * number of available processors, with a one second budget per search. With a number as the
+     * only argument, that many milliseconds are used instead.
+     *
+     * @param args an optional time budget in milliseconds
+     */
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        ConnectFour game = new ConnectFour(9, 9);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        System.out.println("threads   playouts  playouts/s  column  win rate");
+        for (int threads = 1; threads <= cores; threads++) {
+            Result result = withTimeBudget(millis, threads).chooseColumn(game);
+            System.out.printf("%7d %10d %11.0f %7d %9.3f\n", threads, result.playouts(),
+                    result.playoutsPerSecond(), result.bestCol(), result.winRate());
+        } // for
+    } // main
+
+} // MctsPlayer
@@ -0,0 +1,195 @@
+package cs1001.game;
+
+import java.util.SplittableRandom;
+
+/**
+ * A rule for choosing the next column in a {@link cs1001.game.ConnectFour} game, as used by
+ * {@link cs1001.game.Tournament}. Policies must not modify the game and must be safe to call
+ * from several threads at once (on different games); any randomness should come from the
+ * {@link java.util.SplittableRandom} they are given, so that runs are reproducible.
+ *
+ * <p>
+ * The one exception is {@link #anytime}: its search stops on the wall clock and keeps a table
+ * from one move (and game) to the next, so the same game can be played differently from run
+ * to run. Use {@link #depth} for a search-based policy that is reproducible.
+ */
+@FunctionalInterface
+public interface MovePolicy {
+
+    /**
+     * Return the column {@code player} should drop into next. The game is not over, so at
+     * least one column is open.
+     *
+     * @param game the game to play in
+     * @param player the player to move ({@code 0} or {@code 1})
+     * @param random the random source to use
+     * @return an open column index
+     */
+    int chooseColumn(ConnectFour game, int player, SplittableRandom random);
+
+    /**
+     * Return a policy that picks an open column uniformly at random.
+     *
+     * @return the random policy
+     */
+    static MovePolicy random() {
+        return (game, player, random) -> {
+            int col = random.nextInt(game.getCols());
+            while (game.isColumnFull(col)) {
+                col = random.nextInt(game.getCols());
+            } // while
+            return col;
+        };
+    } // random
+
+    /**
+     * Return a policy that picks an open column at random, weighting each column by how close
+     * it is to the center: on a 7-column grid the weights are {@code 1 2 3 4 3 2 1}. Center
+     * columns take part in more four-cell windows, so this plays better than
+     * {@link #random()} at the same speed.
+     *
+     * @return the center-biased policy
+     */
+    static MovePolicy centerBiased() {
+        return (game, player, random) -> {
+            int cols = game.getCols();
+            int total = 0;
+            for (int col = 0; col < cols; col++) {
+                total += game.isColumnFull(col) ? 0 : centerWeight(cols, col);
+            } // for
+            int pick = random.nextInt(total);
+            for (int col = 0; col < cols; col++) {
+                if (!game.isColumnFull(col)) {
+                    pick -= centerWeight(cols, col);
+                    if (pick < 0) {
+                        return col;
+                    } // if
+                } // if
+            } // for
+            throw new AssertionError("no open column");
+        };
+    } // centerBiased
+
+    /**
+     * Return a search-based policy: a single-threaded {@link cs1001.game.MctsPlayer} with a
+     * budget of {@code playouts} playouts per move, seeded from the given random source. It
+     * searches for the player expected to drop next, so {@code player} must be that player.
+     *
+     * @param playouts the number of playouts per move
+     * @return the search policy
+     * @throws IllegalArgumentException if {@code playouts < 1}
+     */
+    static MovePolicy mcts(long playouts) {
+        MctsPlayer.withPlayouts(playouts, 1); // validate the budget now
+        return (game, player, random) -> {
+            MctsPlayer ai = MctsPlayer.withPlayouts(playouts, 1);
+            ai.setSeed(random.nextLong());
+            return ai.chooseColumn(checkTurn(game, player)).bestCol();
+        };
+    } // mcts
+
+    /**
+     * Return a search-based policy: an {@link cs1001.game.AnytimeSearch} with a budget of
+     * {@code millis} milliseconds per move. Each thread keeps its own player, and so its own
+     * transposition table, from one move to the next. This policy is not reproducible (see
+     * the interface description).
+     *
+     * @param millis the time per move, in milliseconds
+     * @return the search policy
+     * @throws IllegalArgumentException if {@code millis < 1}
+     */
+    static MovePolicy anytime(long millis) {
+        AnytimeSearch.withTimeBudget(millis); // validate the budget now
+        ThreadLocal<AnytimeSearch> players =
+                ThreadLocal.withInitial(() -> AnytimeSearch.withTimeBudget(millis));
+        return (game, player, random) -> players.get().chooseColumn(checkTurn(game, player))
+                .bestCol();
+    } // anytime
+
+    /**
+     * Return a search-based policy: an {@link cs1001.game.AnytimeSearch} that searches every
+     * move to {@code plies} plies (see {@link cs1001.game.AnytimeSearch#withDepth}). Unlike
+     * {@link #anytime}, it plays the same column in the same position on every run.
+     *
+     * @param plies the depth per move, in plies
+     * @return the search policy
+     * @throws IllegalArgumentException if {@code plies < 1}
+     */
+    static MovePolicy depth(int plies) {
+        AnytimeSearch.withDepth(plies); // validate the depth now
+        ThreadLocal<AnytimeSearch> players =
+                ThreadLocal.withInitial(() -> AnytimeSearch.withDepth(plies));
+        return (game, player, random) -> players.get().chooseColumn(checkTurn(game, player))
+                .bestCol();
+    } // depth
+
+    /**
+     * Return {@code game} if {@code player} is the player expected to drop next in it. The
+     * search-based policies always search for that player.
+     *
+     * @param game the game
+     * @param player the player to move
+     * @return {@code game}
+     * @throws IllegalArgumentException if {@code player} is not the player expected to drop
+     *                                  next
+     */
+    private static ConnectFour checkTurn(ConnectFour game, int player) {
+        if (player != game.nextPlayer()) {
+            throw new IllegalArgumentException("Bad argument: Player " + player
+                    + " is not the player expected to drop next.");
+        } // if
+        return game;
+    } // checkTurn
+
+    /**
+     * Return the policy named by {@code spec}: {@code random}, {@code center},
+     * {@code mcts:<playouts>} (e.g., {@code mcts:2000}), {@code anytime:<millis>} (e.g.,
+     * {@code anytime:50}) or {@code depth:<plies>} (e.g., {@code depth:8}).
+     *
+     * @param spec the policy name
+     * @return the policy
+     * @throws IllegalArgumentException if {@code spec} names no policy
+     */
+    static MovePolicy parse(String spec) {
+        if (spec.equals("random")) {
+            return random();
+        } else if (spec.equals("center")) {
+            return centerBiased();
+        } else if (spec.startsWith("mcts:")) {
+            try {
+                return mcts(Long.parseLong(spec.substring(5)));
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException(
+                        "Bad argument: " + spec + " has no valid playout count.", nfe);
+            } // try
+        } else if (spec.startsWith("anytime:")) {
+            try {
+                return anytime(Long.parseLong(spec.substring(8)));
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException(
+                        "Bad argument: " + spec + " has no valid time budget.", nfe);
+            } // try
+        } else if (spec.startsWith("depth:")) {
+            try {
+                return depth(Integer.parseInt(spec.substring(6)));
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException(
+                        "Bad argument: " + spec + " has no valid depth.", nfe);
+            } // try
+        } // if
+        throw new IllegalArgumentException("Bad argument: Unknown policy " + spec
+                + " (random, center, mcts:<n>, anytime:<ms> or depth:<plies>).");
+    } // parse
+
+    /**
+     * Return the weight of column {@code col} for {@link #centerBiased()}.
+     *
+     * @param cols the number of grid columns
+     * @param col the column index
+     * @return {@code cols / 2 + 1} minus the column's distance from the center
+     */
+    private static int centerWeight(int cols, int col) {
+        return (cols - 1) / 2 + 1 - Math.abs(2 * col - (cols - 1)) / 2;
+    } // centerWeight
+
+} // MovePolicy
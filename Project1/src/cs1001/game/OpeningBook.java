@@ -0,0 +1,458 @@
+package cs1001.game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A precomputed table of evaluated opening positions, read straight from a memory-mapped file.
+ * Looking up a position is a binary search over fixed-size records in a
+ * {@link java.nio.MappedByteBuffer}: it takes microseconds, keeps the book off the Java heap,
+ * and lets every JVM on the host share the same pages of the file. {@link #lookupColumn}
+ * allocates nothing; {@link #lookup} allocates only the {@link Move} it returns.
+ *
+ * <p>
+ * A book covers one grid size and every position reachable in the first {@code plies} drops
+ * (positions where the game is already over are left out). Each position was evaluated by a
+ * single-threaded {@link cs1001.game.MctsPlayer} when the book was built, since even the
+ * shallowest openings are far beyond exact search; the book stores the column it chose and its
+ * win rate for the player to move.
+ *
+ * <p>
+ * File layout (big-endian): a {@value #HEADER_BYTES}-byte header
+ * ({@code int} magic {@code "C4BK"}, {@code int} version, {@code byte} rows, {@code byte} cols,
+ * {@code byte} plies, one reserved byte, {@code int} record count), followed by
+ * {@value #RECORD_BYTES}-byte records sorted by unsigned key: {@code long} key high word,
+ * {@code long} key low word (see {@link cs1001.game.TranspositionTable#keyLo}), {@code short}
+ * win rate in units of {@code 1/10000}, {@code byte} best column, one reserved byte. A position
+ * and its mirror image across the vertical axis share one record: only the one with the smaller
+ * key is stored, and lookups of the other mirror the stored column.
+ *
+ * <p>
+ * Build books for every supported size with {@link #main}, then:
+ *
+ * <pre>
+ * OpeningBook book = OpeningBook.open(Path.of("books", OpeningBook.fileName(6, 7)));
+ * OpeningBook.Move move = book.lookup(game); // null when the game has left the book
+ * </pre>
+ */
+public final class OpeningBook {
+
+    /** The first four bytes of every book file: {@code "C4BK"}. */
+    static final int MAGIC = 0x4334424B;
+    /** The file format version. */
+    static final int VERSION = 2;
+    /** Size of the file header, in bytes. */
+    static final int HEADER_BYTES = 16;
+    /** Size of one record, in bytes. */
+    static final int RECORD_BYTES = 20;
+
+    /** Number of times {@link #main} repeats a lookup to time it. */
+    private static final int LOOKUP_REPEATS = 100_000;
+
+    private final MappedByteBuffer buffer; // the whole file, read-only
+    private final int rows; // number of grid rows
+    private final int cols; // number of grid columns
+    private final int plies; // depth covered by the book
+    private final int count; // number of records
+
+    /**
+     * Constructs a book over a mapped file whose header has been checked.
+     *
+     * @param buffer the mapped file
+     */
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.rows = buffer.get(8);
+        this.cols = buffer.get(9);
+        this.plies = buffer.get(10);
+        this.count = buffer.getInt(12);
+    } // OpeningBook
+
+    /**
+     * A book move.
+     *
+     * @param bestCol the column to play
+     * @param winRate the expected result of {@code bestCol} for the player to move, from
+     *                {@code 0} (a loss) through {@code 0.5} (a draw) to {@code 1} (a win)
+     */
+    public record Move(int bestCol, double winRate) {
+    } // Move
+
+    /**
+     * Map a book file into memory.
+     *
+     * @param file the book file
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a valid book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a book file: " + file);
+            } // if
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " book file: " + file);
+            } // if
+            if (size != HEADER_BYTES + (long) buffer.getInt(12) * RECORD_BYTES) {
+                throw new IOException("Truncated book file: " + file);
+            } // if
+            return new OpeningBook(buffer); // the mapping outlives the channel
+        } // try
+    } // open
+
+    /**
+     * Return the book move for the player expected to drop next in {@code game}, or
+     * {@code null} if the position is not in the book (e.g., it is deeper than the book's
+     * plies, or the book is for another grid size).
+     *
+     * @param game the game
+     * @return the book move, or {@code null}
+     * @throws NullPointerException if {@code game} is {@code null}
+     */
+    public Move lookup(ConnectFour game) {
+        int found = search(game);
+        if (found < 0) {
+            return null;
+        } // if
+        int at = HEADER_BYTES + (found >>> 1) * RECORD_BYTES;
+        return new Move(column(found), this.buffer.getShort(at + 16) / 10000.0);
+    } // lookup
+
+    /**
+     * Return the book column for the player expected to drop next in {@code game}, or
+     * {@code -1} if the position is not in the book. Unlike {@link #lookup}, this allocates
+     * nothing.
+     *
+     * @param game the game
+     * @return the book column, or {@code -1}
+     * @throws NullPointerException if {@code game} is {@code null}
+     */
+    public int lookupColumn(ConnectFour game) {
+        int found = search(game);
+        return found < 0 ? -1 : column(found);
+    } // lookupColumn
+
+    /**
+     * Return where the current position of {@code game} is in the book, or {@code -1} if it is
+     * not: the record index shifted left by one, with the low bit set if the position is the
+     * mirror image of the stored one. The key is read from the game's own bitboard, so nothing
+     * is copied.
+     *
+     * @param game the game
+     * @return the packed record index and mirror bit, or {@code -1}
+     */
+    private int search(ConnectFour game) {
+        if (game.getRows() != this.rows || game.getCols() != this.cols
+                || game.getPhase() == GamePhase.OVER || game.dropCount() > this.plies) {
+            return -1;
+        } // if
+        long keyLo = game.keyLo();
+        long keyHi = game.keyHi();
+        long mirrorLo = BitBoard.mirrorLo(keyLo, keyHi, this.rows, this.cols);
+        long mirrorHi = BitBoard.mirrorHi(keyLo, keyHi, this.rows, this.cols);
+        boolean mirrored = less(mirrorLo, mirrorHi, keyLo, keyHi);
+        int i = mirrored ? find(mirrorLo, mirrorHi) : find(keyLo, keyHi);
+        return i < 0 ? -1 : i << 1 | (mirrored ? 1 : 0);
+    } // search
+
+    /**
+     * Return the best column of a record found by {@link #search}, mirrored back if needed.
+     *
+     * @param found the packed record index and mirror bit
+     * @return the column to drop into
+     */
+    private int column(int found) {
+        int bestCol = this.buffer.get(HEADER_BYTES + (found >>> 1) * RECORD_BYTES + 18);
+        return (found & 1) != 0 ? this.cols - 1 - bestCol : bestCol;
+    } // column
+
+    /**
+     * Return whether key {@code a} comes before key {@code b} in the book's unsigned order.
+     *
+     * @param aLo the low word of {@code a}
+     * @param aHi the high word of {@code a}
+     * @param bLo the low word of {@code b}
+     * @param bHi the high word of {@code b}
+     * @return {@code true} if {@code a < b}
+     */
+    private static boolean less(long aLo, long aHi, long bLo, long bHi) {
+        int c = Long.compareUnsigned(aHi, bHi);
+        return c != 0 ? c < 0 : Long.compareUnsigned(aLo, bLo) < 0;
+    } // less
+
+    /**
+     * Return the index of the record for a key, or {@code -1} if there is none.
+     *
+     * @param keyLo the key's low word
+     * @param keyHi the key's high word
+     * @return the record index, or {@code -1}
+     */
+    int find(long keyLo, long keyHi) {
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int at = HEADER_BYTES + mid * RECORD_BYTES;
+            int c = Long.compareUnsigned(this.buffer.getLong(at), keyHi);
+            if (c == 0) {
+                c = Long.compareUnsigned(this.buffer.getLong(at + 8), keyLo);
+            } // if
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            } // if
+        } // while
+        return -1;
+    } // find
+
+    /**
+     * Return a policy that plays the book move while the game is in this book, and asks
+     * {@code fallback} otherwise.
+     *
+     * @param fallback the policy for positions outside the book
+     * @return the combined policy
+     */
+    public MovePolicy policy(MovePolicy fallback) {
+        return (game, player, random) -> {
+            int col = lookupColumn(game);
+            return col >= 0 ? col : fallback.chooseColumn(game, player, random);
+        };
+    } // policy
+
+    /**
+     * Return the number of grid rows this book is for.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    } // getRows
+
+    /**
+     * Return the number of grid columns this book is for.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    } // getCols
+
+    /**
+     * Return the number of drops the book covers.
+     *
+     * @return the book depth
+     */
+    public int getPlies() {
+        return this.plies;
+    } // getPlies
+
+    /**
+     * Return the number of positions in the book.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return this.count;
+    } // size
+
+    /**
+     * Return the standard file name of the book for a grid size, e.g., {@code book-6x7.bin}.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @return the file name
+     */
+    public static String fileName(int rows, int cols) {
+        return "book-%dx%d.bin".formatted(rows, cols);
+    } // fileName
+
+    /**
+     * Build the book for {@code rows}-by-{@code cols} games covering the first {@code plies}
+     * drops, evaluating each position with {@code playouts} MCTS playouts on
+     * {@code threads}-many threads, and write it to {@code file}.
+     *
+     * @param file the file to write
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param plies the number of drops to cover ({@code 0..rows * cols - 1})
+     * @param playouts the number of playouts per position
+     * @param threads the number of worker threads
+     * @return the number of positions written
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    public static int build(Path file, int rows, int cols, int plies, long playouts,
+            int threads) throws IOException {
+        if (plies < 0 || plies >= rows * cols || playouts < 1 || threads < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need 0 <= plies < rows * cols, playouts >= 1, threads >= 1.");
+        } // if
+        Map<List<Long>, int[]> positions = new HashMap<>(); // key -> moves reaching it
+        enumerate(new ConnectFour(rows, cols).copyBoard(), 0, new int[plies], 0, plies,
+                positions);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (Map.Entry<List<Long>, int[]> position : positions.entrySet()) {
+            long keyHi = position.getKey().get(0);
+            long keyLo = position.getKey().get(1);
+            int[] moves = position.getValue();
+            tasks.add(() -> {
+                ConnectFour game = new ConnectFour(rows, cols);
+                game.setPlayerTokens(Token.RED, Token.BLUE);
+                for (int i = 0; i < moves.length; i++) {
+                    game.dropToken(i % 2, moves[i]);
+                } // for
+                MctsPlayer ai = MctsPlayer.withPlayouts(playouts, 1);
+                ai.setSeed(keyLo ^ keyHi);
+                MctsPlayer.Result result = ai.chooseColumn(game);
+                return new long[] {keyHi, keyLo, Math.round(result.winRate() * 10000),
+                    result.bestCol()};
+            });
+        } // for
+        List<long[]> records = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<long[]> future : pool.invokeAll(tasks)) {
+                records.add(future.get());
+            } // for
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the book.", ie);
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException("Evaluation failed.", ee.getCause());
+        } finally {
+            pool.shutdown();
+        } // try
+        records.sort(Comparator.<long[]>comparingLong(r -> r[0] ^ Long.MIN_VALUE)
+                .thenComparingLong(r -> r[1] ^ Long.MIN_VALUE)); // unsigned order
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + records.size() * RECORD_BYTES);
+        out.putInt(MAGIC).putInt(VERSION).put((byte) rows).put((byte) cols).put((byte) plies)
+                .put((byte) 0).putInt(records.size());
+        for (long[] r : records) {
+            out.putLong(r[0]).putLong(r[1]).putShort((short) r[2]).put((byte) r[3])
+                    .put((byte) 0);
+        } // for
+        Files.write(file, out.array());
+        return records.size();
+    } // build
+
+    /**
+     * Add every position reachable from {@code board} in at most {@code plies - depth} more
+     * drops, and where nobody has won yet, to {@code positions}. Positions are stored under the
+     * smaller of their own key and their mirror image's, with the moves reaching that one.
+     *
+     * @param board the current position (restored before returning)
+     * @param player the player to move
+     * @param moves the columns dropped so far
+     * @param depth the number of drops so far
+     * @param plies the depth to stop at
+     * @param positions the positions found, keyed by {@code [keyHi, keyLo]}
+     */
+    private static void enumerate(BitBoard board, int player, int[] moves, int depth,
+            int plies, Map<List<Long>, int[]> positions) {
+        long keyLo = TranspositionTable.keyLo(board, player);
+        long keyHi = TranspositionTable.keyHi(board, player);
+        long mirrorLo = BitBoard.mirrorLo(keyLo, keyHi, board.rows, board.cols);
+        long mirrorHi = BitBoard.mirrorHi(keyLo, keyHi, board.rows, board.cols);
+        int[] reaching = Arrays.copyOf(moves, depth);
+        List<Long> key;
+        if (less(mirrorLo, mirrorHi, keyLo, keyHi)) {
+            key = List.of(mirrorHi, mirrorLo);
+            for (int i = 0; i < depth; i++) {
+                reaching[i] = board.cols - 1 - reaching[i];
+            } // for
+        } else {
+            key = List.of(keyHi, keyLo);
+        } // if
+        if (positions.putIfAbsent(key, reaching) != null || depth == plies) {
+            return; // seen through another move order, or deep enough
+        } // if
+        for (int col = 0; col < board.cols; col++) {
+            if (board.isFull(col) || board.isWinningDrop(player, col)) {
+                continue; // a won position needs no book move
+            } // if
+            board.drop(player, col);
+            moves[depth] = col;
+            enumerate(board, 1 - player, moves, depth + 1, plies, positions);
+            board.undo(col);
+        } // for
+    } // enumerate
+
+    /**
+     * Build books for every grid size that {@link cs1001.game.ConnectFour} supports, or look up
+     * a position in one.
+     *
+     * <pre>
+     * java cs1001.game.OpeningBook build dir [plies [playouts]]
+     * java cs1001.game.OpeningBook lookup file col...
+     * </pre>
+     *
+     * <p>
+     * {@code build} writes {@link #fileName}-named books into {@code dir}, by default covering
+     * 4 plies with 20000 playouts per position, on all available processors. {@code lookup}
+     * plays the given columns from an empty grid and prints the book move and the average time
+     * of {@value #LOOKUP_REPEATS} lookups.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if a book cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("build")) {
+            Path dir = Path.of(args[1]);
+            int plies = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+            long playouts = args.length > 3 ? Long.parseLong(args[3]) : 20000;
+            int threads = Runtime.getRuntime().availableProcessors();
+            Files.createDirectories(dir);
+            for (int rows = WinTable.MIN_ROWS; rows <= WinTable.MAX_ROWS; rows++) {
+                for (int cols = WinTable.MIN_COLS; cols <= WinTable.MAX_COLS; cols++) {
+                    long start = System.nanoTime();
+                    int n = build(dir.resolve(fileName(rows, cols)), rows, cols, plies,
+                            playouts, threads);
+                    System.out.printf("%dx%d: %d positions in %.1f s\n", rows, cols, n,
+                            (System.nanoTime() - start) / 1e9);
+                } // for
+            } // for
+        } else if (args.length >= 2 && args[0].equals("lookup")) {
+            OpeningBook book = open(Path.of(args[1]));
+            ConnectFour game = new ConnectFour(book.getRows(), book.getCols());
+            game.setPlayerTokens(Token.RED, Token.BLUE);
+            for (int i = 2; i < args.length; i++) {
+                game.dropToken((i - 2) % 2, Integer.parseInt(args[i]));
+            } // for
+            int col = -1;
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUP_REPEATS; i++) { // repeat so the time is of warm lookups
+                col = book.lookupColumn(game);
+            } // for
+            long nanos = (System.nanoTime() - start) / LOOKUP_REPEATS;
+            Move move = book.lookup(game);
+            System.out.println((move == null ? "not in book" : move) + " (" + nanos
+                    + " ns per lookup)");
+        } else {
+            System.out.println("Usage: java cs1001.game.OpeningBook build dir [plies [playouts]]");
+            System.out.println("       java cs1001.game.OpeningBook lookup file col...");
+        } // if
+    } // main
+
+} // OpeningBook
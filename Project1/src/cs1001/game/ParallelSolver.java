@@ -0,0 +1,353 @@
+package cs1001.game;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A multi-threaded version of {@link cs1001.game.ConnectFourSolver} that spreads the game tree
+ * over a {@link java.util.concurrent.ForkJoinPool}. Scores and their meaning are the same as
+ * for {@code ConnectFourSolver}.
+ *
+ * <p>
+ * Near the root the search splits with <em>young brothers wait</em>: at each split node the
+ * first (eldest) column is searched on its own, which usually sets a good alpha-beta window,
+ * and only then are the remaining (younger) columns searched in parallel. Younger columns get a
+ * null window that only asks whether they beat the eldest; the few that do are searched again
+ * with the full window.
+ * Below {@link #SPLIT_PLIES} plies, or once fewer than {@link #MIN_SPLIT_EMPTY} cells are left,
+ * each task finishes its subtree with the sequential solver. All threads share one
+ * lock-free {@link cs1001.game.TranspositionTable}, so a result found by one thread is reused
+ * by the others.
+ */
+public class ParallelSolver {
+
+    /**
+     * Number of plies below the root at which nodes may still be split across threads. Two
+     * plies give up to {@code cols * cols} parallel subtrees, enough to keep 32 cores busy;
+     * each extra ply adds search overhead, since younger brothers are searched before the
+     * window they would have inherited is known.
+     */
+    static final int SPLIT_PLIES = 2;
+
+    /** Nodes with fewer empty cells than this are always searched sequentially. */
+    static final int MIN_SPLIT_EMPTY = 12;
+
+    private final TranspositionTable table; // shared by every task
+    private final int size; // number of cells in the grid
+    private final int[] order; // center-first column order
+    private final LongAdder nodes; // positions visited by all tasks
+    private final LongAdder cutoffs; // beta cutoffs of all tasks, if EngineMetrics is enabled
+    private final LongAdder winChecks; // win checks of all tasks, if EngineMetrics is enabled
+    private volatile int rootBestCol; // best column at the root, set by the root node only
+
+    /**
+     * Constructs a parallel solver for {@code rows}-by-{@code cols} positions.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param table the transposition table shared by all tasks
+     */
+    private ParallelSolver(int rows, int cols, TranspositionTable table) {
+        this.table = table;
+        this.size = rows * cols;
+        this.order = ConnectFourSolver.centerFirst(cols);
+        this.nodes = new LongAdder();
+        this.cutoffs = new LongAdder();
+        this.winChecks = new LongAdder();
+        this.rootBestCol = -1;
+    } // ParallelSolver
+
+    /**
+     * Solve the position in {@code game} on all available processors, with a new
+     * transposition table of the
+     * {@linkplain cs1001.game.TranspositionTable#DEFAULT_BYTES default} size.
+     *
+     * @param game the game to solve
+     * @return the score and a best column for the player to move
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     * @see cs1001.game.ConnectFourSolver#solve(ConnectFour)
+     */
+    public static ConnectFourSolver.Result solve(ConnectFour game) {
+        return solve(game, new TranspositionTable(), Runtime.getRuntime().availableProcessors());
+    } // solve
+
+    /**
+     * Solve the position in {@code game} with {@code threads}-many worker threads sharing
+     * {@code table}. The game itself is not modified. Entries already in the table are reused
+     * if they are for the same grid size; a table last used for another size is cleared first
+     * (see {@link cs1001.game.TranspositionTable#useFor}).
+     *
+     * @param game the game to solve
+     * @param table the transposition table to share between threads
+     * @param threads the number of worker threads
+     * @return the score and a best column for the player to move
+     * @throws NullPointerException if {@code game} or {@code table} is {@code null}
+     * @throws IllegalArgumentException if {@code threads < 1}
+     * @throws IllegalStateException if {@link cs1001.game.ConnectFour#getPhase getPhase()}
+     *                               returns {@link cs1302.gameutil.GamePhase#OVER}
+     */
+    public static ConnectFourSolver.Result solve(ConnectFour game, TranspositionTable table,
+            int threads) {
+        if (game.getPhase() == GamePhase.OVER) {
+            throw new IllegalStateException(
+                    "Wrong phase: There is nothing to solve once the game is over.");
+        } // if
+        if (table == null) {
+            throw new NullPointerException(
+                    "Null argument(s): The transposition table can't be null.");
+        } // if
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: At least one thread is needed.");
+        } // if
+        table.useFor(game.getRows(), game.getCols()); // before any worker reads it
+        ParallelSolver solver = new ParallelSolver(game.getRows(), game.getCols(), table);
+        BitBoard board = game.copyBoard();
+        int player = game.nextPlayer();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int score = pool.invoke(solver.new SplitTask(board, player, -solver.size,
+                    solver.size, 0));
+            long nanos = System.nanoTime() - start;
+            if (EngineMetrics.ENABLED) {
+                EngineMetrics.searched(solver.nodes.sum(), solver.cutoffs.sum(),
+                        solver.winChecks.sum(), nanos);
+            } // if
+            return new ConnectFourSolver.Result(score, solver.rootBestCol,
+                    solver.nodes.sum(), nanos);
+        } finally {
+            pool.shutdown();
+        } // try
+    } // solve
+
+    /**
+     * Search {@code board} for {@code player} within {@code (alpha, beta)}, like
+     * {@link cs1001.game.ConnectFourSolver#negamax}, splitting the younger columns across
+     * threads if the node is close enough to the root. Runs inside the fork/join pool.
+     *
+     * @param board the position (owned by the caller; restored before returning)
+     * @param player the player to move
+     * @param alpha the lower end of the search window
+     * @param beta the upper end of the search window
+     * @param ply the distance from the root
+     * @return the (bounded) score for {@code player}
+     */
+    private int search(BitBoard board, int player, int alpha, int beta, int ply) {
+        if (ply > 0 && (ply >= SPLIT_PLIES || this.size - board.count < MIN_SPLIT_EMPTY)) {
+            ConnectFourSolver sequential = new ConnectFourSolver(board, this.table);
+            int score = sequential.negamax(player, alpha, beta);
+            this.nodes.add(sequential.nodes());
+            if (EngineMetrics.ENABLED) {
+                this.cutoffs.add(sequential.cutoffs());
+                this.winChecks.add(sequential.winChecks());
+            } // if
+            return score;
+        } // if
+        this.nodes.increment();
+        int moves = board.count;
+        if (moves == this.size) {
+            return 0;
+        } // if
+        for (int col : this.order) {
+            if (EngineMetrics.ENABLED && !board.isFull(col)) {
+                this.winChecks.increment();
+            } // if
+            if (!board.isFull(col) && board.isWinningDrop(player, col)) {
+                if (ply == 0) {
+                    this.rootBestCol = col;
+                } // if
+                return (this.size + 1 - moves) / 2;
+            } // if
+        } // for
+        beta = Math.min(beta, (this.size - 1 - moves) / 2);
+        if (alpha >= beta) {
+            return beta;
+        } // if
+        long keyLo = TranspositionTable.keyLo(board, player);
+        long keyHi = TranspositionTable.keyHi(board, player);
+        int alphaOrig = alpha;
+        int firstCol = -1; // best column from an earlier search of this position
+        long entry = ply == 0 ? 0 : this.table.probe(keyLo, keyHi); // the root needs its column
+        if (entry != 0) {
+            int value = TranspositionTable.value(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT) {
+                return value;
+            } else if (bound == TranspositionTable.LOWER) {
+                alpha = Math.max(alpha, value);
+            } else {
+                beta = Math.min(beta, value);
+            } // if
+            if (alpha >= beta) {
+                return value;
+            } // if
+            firstCol = TranspositionTable.bestCol(entry);
+        } // if
+        int bestCol = -1;
+        List<SplitTask> younger = new ArrayList<>();
+        List<Integer> youngerCols = new ArrayList<>();
+        for (int i = -1; i < this.order.length; i++) {
+            int col = i < 0 ? firstCol : this.order[i];
+            if (col < 0 || (i >= 0 && col == firstCol) || board.isFull(col)) {
+                continue;
+            } // if
+            if (younger.isEmpty() && bestCol < 0) { // the eldest brother: search it right here
+                board.drop(player, col);
+                int score = -search(board, 1 - player, -beta, -alpha, ply + 1);
+                board.undo(col);
+                if (score >= beta) {
+                    return store(keyLo, keyHi, board, TranspositionTable.LOWER, score, col, ply);
+                } // if
+                bestCol = col;
+                alpha = Math.max(alpha, score);
+            } else { // younger brothers: only ask whether they beat alpha, all in parallel
+                BitBoard child = new BitBoard(board);
+                child.drop(player, col);
+                younger.add(new SplitTask(child, 1 - player, -alpha - 1, -alpha, ply + 1));
+                youngerCols.add(col);
+            } // if
+        } // for
+        int splitAlpha = alpha; // the window every younger brother was searched with
+        RecursiveTask.invokeAll(younger);
+        for (int i = 0; i < younger.size(); i++) {
+            int score = -younger.get(i).join();
+            int col = youngerCols.get(i);
+            if (score > splitAlpha && score < beta) { // beat alpha: find out by how much
+                board.drop(player, col);
+                score = -search(board, 1 - player, -beta, -alpha, ply + 1);
+                board.undo(col);
+            } // if
+            if (score >= beta) {
+                return store(keyLo, keyHi, board, TranspositionTable.LOWER, score, col, ply);
+            } // if
+            if (score > alpha) {
+                alpha = score;
+                bestCol = col;
+            } // if
+        } // for
+        int bound = alpha > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        return store(keyLo, keyHi, board, bound, alpha, bestCol, ply);
+    } // search
+
+    /**
+     * Record a split node's result in the transposition table (and, at the root, its best
+     * column), then return the score.
+     *
+     * @param keyLo the low word of the node's key
+     * @param keyHi the high word of the node's key
+     * @param board the position
+     * @param bound the bound type of {@code score}
+     * @param score the node's score
+     * @param bestCol the best column found
+     * @param ply the distance from the root
+     * @return {@code score}
+     */
+    private int store(long keyLo, long keyHi, BitBoard board, int bound, int score, int bestCol,
+            int ply) {
+        if (EngineMetrics.ENABLED && bound == TranspositionTable.LOWER) {
+            this.cutoffs.increment();
+        } // if
+        this.table.store(keyLo, keyHi, this.size - board.count, bound, score, bestCol);
+        if (ply == 0) {
+            this.rootBestCol = bestCol;
+        } // if
+        return score;
+    } // store
+
+    /**
+     * A fork/join task that searches one node with {@link #search}.
+     */
+    private final class SplitTask extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BitBoard board; // the task's own copy of the position
+        private final int player; // player to move
+        private final int alpha; // lower end of the window
+        private final int beta; // upper end of the window
+        private final int ply; // distance from the root
+
+        /**
+         * Constructs a task that searches {@code board} for {@code player}.
+         *
+         * @param board the position, owned by the task
+         * @param player the player to move
+         * @param alpha the lower end of the window
+         * @param beta the upper end of the window
+         * @param ply the distance from the root
+         */
+        SplitTask(BitBoard board, int player, int alpha, int beta, int ply) {
+            this.board = board;
+            this.player = player;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.ply = ply;
+        } // SplitTask
+
+        @Override
+        protected Integer compute() {
+            return search(this.board, this.player, this.alpha, this.beta, this.ply);
+        } // compute
+
+    } // SplitTask
+
+    /**
+     * Print the speedup curve of the parallel search: the position is solved once with the
+     * sequential {@link cs1001.game.ConnectFourSolver}, then once for each thread count from
+     * {@code 1} to the number of available processors, each time with a new transposition
+     * table. Speedups are relative to the sequential solver, so they include the extra nodes
+     * that splitting costs.
+     *
+     * <p>
+     * With a game file (see {@link cs1001.game.ConnectFour#fromFile}) as the only argument, that
+     * position is used; otherwise a mid-game 6x7 position built from {@link #DEMO_MOVES}.
+     *
+     * @param args an optional path to a game file
+     * @throws FileNotFoundException if the file cannot be found
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ConnectFour game = args.length > 0 ? ConnectFour.fromFile(args[0]) : demoGame();
+        ConnectFourSolver.Result result = ConnectFourSolver.solve(game,
+                new TranspositionTable(1L << 26));
+        double base = result.nanos() / 1e9;
+        System.out.println("threads      time    speedup      nodes    nodes/s");
+        System.out.printf("    seq %8.3f s %9.2fx %10d %10.0f  (score %d, column %d)\n",
+                base, 1.0, result.nodes(), result.nodesPerSecond(), result.score(),
+                result.bestCol());
+        for (int threads = 1; threads <= cores; threads++) {
+            result = solve(game, new TranspositionTable(1L << 26), threads);
+            double seconds = result.nanos() / 1e9;
+            System.out.printf("%7d %8.3f s %9.2fx %10d %10.0f  (score %d, column %d)\n",
+                    threads, seconds, base / seconds, result.nodes(), result.nodesPerSecond(),
+                    result.score(), result.bestCol());
+        } // for
+    } // main
+
+    /** Columns of a 6x7 opening that leaves a position taking about a second to solve. */
+    static final int[] DEMO_MOVES = {1, 5, 6, 2, 4, 5, 4, 3, 5, 4, 2, 1};
+
+    /**
+     * Return a 6x7 game with {@link #DEMO_MOVES} played, alternating players.
+     *
+     * @return the demo game
+     */
+    static ConnectFour demoGame() {
+        ConnectFour game = new ConnectFour(6, 7);
+        game.setPlayerTokens(Token.RED, Token.BLUE);
+        for (int i = 0; i < DEMO_MOVES.length; i++) {
+            game.dropToken(i % 2, DEMO_MOVES[i]);
+        } // for
+        return game;
+    } // demoGame
+
+} // ParallelSolver
@@ -0,0 +1,259 @@
+package cs1001.game;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A perft ("performance test") counter for {@link cs1001.game.ConnectFour}: it counts every
+ * legal sequence of {@code depth} drops from a position, alternating players, where no drop is
+ * made after the game is over (a sequence may end the game with its last drop). It plays the
+ * sequences through the public game API &mdash; {@link cs1001.game.ConnectFour#dropToken},
+ * {@link cs1001.game.ConnectFour#getPhase} (which relies on
+ * {@link cs1001.game.ConnectFour#isLastDropConnectFour}) and
+ * {@link cs1001.game.ConnectFour#undoLastDrop} &mdash; so it serves two purposes:
+ * <ul>
+ * <li>a correctness oracle: the counts only depend on the rules, so any change to the drop or
+ * win-check code that changes a count is a bug;</li>
+ * <li>a repeatable throughput benchmark of that hot path, reported in nodes (drops) per
+ * second.</li>
+ * </ul>
+ *
+ * <p>
+ * The parallel mode splits the first {@link #SPLIT_PLIES} plies into fork/join tasks, each
+ * playing on its own copy of the game, and gives the same counts.
+ *
+ * <pre>
+ * $ java cs1001.game.Perft 7       # every grid size from the empty grid, one thread
+ * $ java cs1001.game.Perft 8 4     # the same at depth 8 on four threads
+ * </pre>
+ */
+public final class Perft {
+
+    /** Number of plies below the root that the parallel mode splits into tasks. */
+    static final int SPLIT_PLIES = 2;
+
+    /**
+     * No instances: all methods are static.
+     */
+    private Perft() {
+    } // Perft
+
+    /**
+     * The outcome of a perft run.
+     *
+     * @param depth the depth counted
+     * @param leaves the number of drop sequences of length {@code depth}
+     * @param nodes the number of drops made, at all depths
+     * @param nanos the wall-clock time the count took, in nanoseconds
+     */
+    public record Result(int depth, long leaves, long nodes, long nanos) {
+
+        /**
+         * Return the throughput.
+         *
+         * @return drops made per second
+         */
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        } // nodesPerSecond
+
+    } // Result
+
+    /**
+     * Count the drop sequences of length {@code depth} from the position in {@code game},
+     * starting with the player expected to drop next. The game is played on in place and left
+     * as it was found.
+     *
+     * @param game the game
+     * @param depth the number of drops per sequence
+     * @return the counts and timing
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalArgumentException if {@code depth < 0}
+     * @throws IllegalStateException if the player tokens have not been set
+     */
+    public static Result perft(ConnectFour game, int depth) {
+        return perft(game, depth, 1);
+    } // perft
+
+    /**
+     * Count the drop sequences like {@link #perft(ConnectFour, int)}, on {@code threads}-many
+     * threads. With more than one thread the game itself is not played on at all.
+     *
+     * @param game the game
+     * @param depth the number of drops per sequence
+     * @param threads the number of worker threads
+     * @return the counts and timing
+     * @throws NullPointerException if {@code game} is {@code null}
+     * @throws IllegalArgumentException if {@code depth < 0} or {@code threads < 1}
+     * @throws IllegalStateException if the player tokens have not been set
+     */
+    public static Result perft(ConnectFour game, int depth, int threads) {
+        if (depth < 0 || threads < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need depth >= 0 and at least one thread.");
+        } // if
+        if (game.getPhase() == GamePhase.NEW) {
+            throw new IllegalStateException(
+                    "Wrong phase: Player tokens must be set before tokens can be dropped.");
+        } // if
+        long start = System.nanoTime();
+        long[] counts = new long[2]; // leaves, nodes
+        if (game.getPhase() == GamePhase.OVER) {
+            counts[0] = depth == 0 ? 1 : 0; // only the empty sequence is legal
+        } else if (threads == 1) {
+            count(game, game.nextPlayer(), depth, counts);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long[] result = pool.invoke(new Task(game.copy(), game.nextPlayer(), depth, 0));
+                counts[0] = result[0];
+                counts[1] = result[1];
+            } finally {
+                pool.shutdown();
+            } // try
+        } // if
+        return new Result(depth, counts[0], counts[1], System.nanoTime() - start);
+    } // perft
+
+    /**
+     * Add the leaves and drops below the position in {@code game} to {@code counts}.
+     *
+     * @param game the game (restored before returning)
+     * @param player the player to drop next
+     * @param depth the number of drops left
+     * @param counts leaves and drops so far
+     */
+    private static void count(ConnectFour game, int player, int depth, long[] counts) {
+        if (depth == 0) {
+            counts[0]++;
+            return;
+        } // if
+        for (int col = 0; col < game.getCols(); col++) {
+            if (game.isColumnFull(col)) {
+                continue;
+            } // if
+            game.dropToken(player, col);
+            counts[1]++;
+            if (depth == 1) {
+                counts[0]++; // a leaf, whether or not the drop ended the game
+            } else if (game.getPhase() != GamePhase.OVER) {
+                count(game, 1 - player, depth - 1, counts);
+            } // if
+            game.undoLastDrop();
+        } // for
+    } // count
+
+    /**
+     * A parallel perft task: near the root it forks one task per column, each on its own copy
+     * of the game; below {@link #SPLIT_PLIES} it counts sequentially.
+     */
+    private static final class Task extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ConnectFour game; // owned by this task
+        private final int player; // player to drop next
+        private final int depth; // drops left
+        private final int ply; // distance from the root
+
+        /**
+         * Constructs a task for the position in {@code game}.
+         *
+         * @param game the game (owned by the task from now on)
+         * @param player the player to drop next
+         * @param depth the number of drops left
+         * @param ply the distance from the root
+         */
+        Task(ConnectFour game, int player, int depth, int ply) {
+            this.game = game;
+            this.player = player;
+            this.depth = depth;
+            this.ply = ply;
+        } // Task
+
+        /**
+         * Count the leaves and drops below this task's position.
+         *
+         * @return leaves and drops
+         */
+        @Override
+        protected long[] compute() {
+            long[] counts = new long[2];
+            if (this.ply >= SPLIT_PLIES || this.depth <= 1) {
+                count(this.game, this.player, this.depth, counts);
+                return counts;
+            } // if
+            List<Task> children = new ArrayList<>();
+            for (int col = 0; col < this.game.getCols(); col++) {
+                if (this.game.isColumnFull(col)) {
+                    continue;
+                } // if
+                counts[1]++;
+                ConnectFour child = this.game.copy();
+                child.dropToken(this.player, col);
+                if (child.getPhase() != GamePhase.OVER) { // depth > 1: not a leaf if over
+                    children.add(new Task(child, 1 - this.player, this.depth - 1,
+                            this.ply + 1));
+                } // if
+            } // for
+            for (Task child : invokeAll(children)) {
+                long[] sub = child.join();
+                counts[0] += sub[0];
+                counts[1] += sub[1];
+            } // for
+            return counts;
+        } // compute
+
+    } // Task
+
+    /**
+     * Print perft counts and nodes per second from the empty grid for every supported grid
+     * size, or for the position in a game file.
+     *
+     * <pre>
+     * java cs1001.game.Perft [depth [threads [game file]]]
+     * </pre>
+     *
+     * <p>
+     * The depth defaults to {@code 7} and the thread count to {@code 1}.
+     *
+     * @param args the command-line arguments
+     * @throws FileNotFoundException if the game file cannot be found
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        System.out.println(" size  depth          leaves           nodes    time     nodes/s");
+        if (args.length > 2) {
+            print(ConnectFour.fromFile(args[2]), depth, threads);
+            return;
+        } // if
+        for (int rows = WinTable.MIN_ROWS; rows <= WinTable.MAX_ROWS; rows++) {
+            for (int cols = WinTable.MIN_COLS; cols <= WinTable.MAX_COLS; cols++) {
+                ConnectFour game = new ConnectFour(rows, cols);
+                game.setPlayerTokens(Token.RED, Token.BLUE);
+                print(game, depth, threads);
+            } // for
+        } // for
+    } // main
+
+    /**
+     * Run perft on {@code game} and print one line of results.
+     *
+     * @param game the game
+     * @param depth the depth
+     * @param threads the number of threads
+     */
+    private static void print(ConnectFour game, int depth, int threads) {
+        Result result = perft(game, depth, threads);
+        System.out.printf("%2dx%d %6d %15d %15d %6.2f s %11.0f\n", game.getRows(),
+                game.getCols(), depth, result.leaves(), result.nodes(), result.nanos() / 1e9,
+                result.nodesPerSecond());
+    } // print
+
+} // Perft
@@ -0,0 +1,334 @@
+package cs1001.game;
+
+/**
+ * An immutable snapshot of a {@link cs1001.game.ConnectFour} position: which player owns each
+ * cell, and which player drops next. A position is four {@code long}s plus the grid size, with
+ * the same bit layout as {@link cs1001.game.BitBoard}; it holds no {@code Token[][]} and no
+ * reference back to the game.
+ *
+ * <p>
+ * Since nothing in a position can change, any number of threads can read the same one at once
+ * without copying or locking, and positions can be used as keys in hash maps and sets.
+ * {@link #child} derives the position after one more drop in a few bit operations, so analysis
+ * code can walk the game tree without a mutable game at all.
+ *
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * Position now = game.snapshot();
+ * Position next = now.child(3); // now itself is unchanged
+ * Position key = next.canonical(); // shared with next.mirror()
+ * </pre>
+ */
+public final class Position {
+
+    private final long lo0; // low word of player 0's mask
+    private final long hi0; // high word of player 0's mask
+    private final long lo1; // low word of player 1's mask
+    private final long hi1; // high word of player 1's mask
+    private final byte rows; // number of grid rows
+    private final byte cols; // number of grid columns
+    private final byte nextPlayer; // player to drop next
+
+    /**
+     * Constructs a position from its masks.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param lo0 the low word of player 0's mask
+     * @param hi0 the high word of player 0's mask
+     * @param lo1 the low word of player 1's mask
+     * @param hi1 the high word of player 1's mask
+     * @param nextPlayer the player to drop next
+     */
+    private Position(int rows, int cols, long lo0, long hi0, long lo1, long hi1,
+            int nextPlayer) {
+        this.rows = (byte) rows;
+        this.cols = (byte) cols;
+        this.lo0 = lo0;
+        this.hi0 = hi0;
+        this.lo1 = lo1;
+        this.hi1 = hi1;
+        this.nextPlayer = (byte) nextPlayer;
+    } // Position
+
+    /**
+     * Return a snapshot of {@code board} with {@code nextPlayer} to move.
+     *
+     * @param board the board
+     * @param nextPlayer the player to drop next
+     * @return the position
+     */
+    static Position of(BitBoard board, int nextPlayer) {
+        return new Position(board.rows, board.cols, board.lo[0], board.hi[0], board.lo[1],
+                board.hi[1], nextPlayer);
+    } // of
+
+    /**
+     * Return a new {@link cs1001.game.BitBoard} holding this position, for search code to play
+     * on in place.
+     *
+     * @return the board
+     */
+    BitBoard toBoard() {
+        BitBoard board = new BitBoard(this.rows, this.cols);
+        board.lo[0] = this.lo0;
+        board.hi[0] = this.hi0;
+        board.lo[1] = this.lo1;
+        board.hi[1] = this.hi1;
+        for (int col = 0; col < this.cols; col++) {
+            board.height[col] = (byte) height(col);
+            board.count += board.height[col];
+        } // for
+        return board;
+    } // toBoard
+
+    /**
+     * Return the number of grid rows.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    } // getRows
+
+    /**
+     * Return the number of grid columns.
+     *
+     * @return the number of columns
+     */
+    public int getCols() {
+        return this.cols;
+    } // getCols
+
+    /**
+     * Return the player who drops next.
+     *
+     * @return {@code 0} or {@code 1}
+     */
+    public int getNextPlayer() {
+        return this.nextPlayer;
+    } // getNextPlayer
+
+    /**
+     * Return the number of tokens on the grid.
+     *
+     * @return the number of tokens
+     */
+    public int getNumDropped() {
+        return Long.bitCount(this.lo0 | this.lo1) + Long.bitCount(this.hi0 | this.hi1);
+    } // getNumDropped
+
+    /**
+     * Return the player whose token is at {@code (row, col)}. Rows are numbered from the top,
+     * as in {@link cs1001.game.ConnectFour#getTokenAt}.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return {@code 0} or {@code 1} for the owning player, or {@code -1} if the cell is empty
+     * @throws IndexOutOfBoundsException if the cell is not inside the grid
+     */
+    public int getPlayerAt(int row, int col) {
+        if (row < 0 || row >= this.rows || col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: (%d, %d) is not in the grid.".formatted(row, col));
+        } // if
+        int bit = col * (this.rows + 1) + this.rows - 1 - row;
+        long mask = 1L << bit;
+        if (bit < 64) {
+            return (this.lo0 & mask) != 0 ? 0 : (this.lo1 & mask) != 0 ? 1 : -1;
+        } // if
+        return (this.hi0 & mask) != 0 ? 0 : (this.hi1 & mask) != 0 ? 1 : -1;
+    } // getPlayerAt
+
+    /**
+     * Return whether column {@code col} is full.
+     *
+     * @param col the column index
+     * @return {@code true} if no more tokens fit in the column
+     * @throws IndexOutOfBoundsException if {@code col} is not a valid column index
+     */
+    public boolean isColumnFull(int col) {
+        if (col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: Please enter a valid column index.");
+        } // if
+        return height(col) >= this.rows;
+    } // isColumnFull
+
+    /**
+     * Return the player who has a connect four, if any.
+     *
+     * @return {@code 0} or {@code 1} for the winner, or {@code -1} if nobody has won
+     */
+    public int getWinner() {
+        int stride = this.rows + 1;
+        return BitBoard.hasFour(this.lo0, this.hi0, stride) ? 0
+                : BitBoard.hasFour(this.lo1, this.hi1, stride) ? 1 : -1;
+    } // getWinner
+
+    /**
+     * Return whether the game is over in this position: someone has won or the grid is full.
+     *
+     * @return {@code true} if no more drops are allowed
+     */
+    public boolean isOver() {
+        return getNumDropped() == this.rows * this.cols || getWinner() >= 0;
+    } // isOver
+
+    /**
+     * Return the position after the next player drops a token into column {@code col}. This
+     * position is not changed.
+     *
+     * @param col the column index
+     * @return the child position, with the other player to move
+     * @throws IndexOutOfBoundsException if {@code col} is not a valid column index
+     * @throws IllegalStateException if the column is full or the game is over
+     */
+    public Position child(int col) {
+        if (isColumnFull(col)) {
+            throw new IllegalStateException("Illegal Argument: Sorry, column full!");
+        } // if
+        if (getWinner() >= 0) {
+            throw new IllegalStateException(
+                    "Wrong phase: No drops are allowed once the game is over.");
+        } // if
+        int bit = col * (this.rows + 1) + height(col);
+        long lo = bit < 64 ? 1L << bit : 0;
+        long hi = bit < 64 ? 0 : 1L << bit;
+        return this.nextPlayer == 0
+                ? new Position(this.rows, this.cols, this.lo0 | lo, this.hi0 | hi, this.lo1,
+                        this.hi1, 1)
+                : new Position(this.rows, this.cols, this.lo0, this.hi0, this.lo1 | lo,
+                        this.hi1 | hi, 0);
+    } // child
+
+    /**
+     * Return the mirror image of this position across the grid's vertical axis: the tokens of
+     * column {@code col} move to column {@code getCols() - 1 - col}. The same player is to move,
+     * and since the rules are symmetric, the mirrored position has the same game-theoretic
+     * value, with every good column mirrored too.
+     *
+     * @return the mirrored position
+     */
+    public Position mirror() {
+        int r = this.rows;
+        int c = this.cols;
+        return new Position(r, c, BitBoard.mirrorLo(this.lo0, this.hi0, r, c),
+                BitBoard.mirrorHi(this.lo0, this.hi0, r, c),
+                BitBoard.mirrorLo(this.lo1, this.hi1, r, c),
+                BitBoard.mirrorHi(this.lo1, this.hi1, r, c), this.nextPlayer);
+    } // mirror
+
+    /**
+     * Return the canonical form of this position: whichever of this position and its
+     * {@linkplain #mirror mirror image} comes first in a fixed order of the masks. A position
+     * and its mirror image have the same canonical form, so a cache or book keyed by canonical
+     * positions needs about half as many entries. Columns found in the canonical position are
+     * translated back with {@link #canonicalColumn}.
+     *
+     * @return this position or its mirror image
+     */
+    public Position canonical() {
+        Position mirror = mirror();
+        return compare(mirror, this) < 0 ? mirror : this;
+    } // canonical
+
+    /**
+     * Translate a column between this position and its {@linkplain #canonical canonical form}.
+     * The translation is its own inverse, so it works both ways: a move chosen for this
+     * position maps to the same move in the canonical position, and a best move stored for the
+     * canonical position maps back to this one.
+     *
+     * @param col the column index
+     * @return {@code col}, or {@code getCols() - 1 - col} if the canonical form is the mirror
+     *     image
+     * @throws IndexOutOfBoundsException if {@code col} is not a valid column index
+     */
+    public int canonicalColumn(int col) {
+        if (col < 0 || col >= this.cols) {
+            throw new IndexOutOfBoundsException(
+                    "Out of bounds: Please enter a valid column index.");
+        } // if
+        return compare(mirror(), this) < 0 ? this.cols - 1 - col : col;
+    } // canonicalColumn
+
+    /**
+     * Compare two positions of the same grid size by their masks, as unsigned numbers.
+     *
+     * @param a a position
+     * @param b another position
+     * @return a negative number, zero or a positive number as {@code a} comes before, with or
+     *     after {@code b}
+     */
+    private static int compare(Position a, Position b) {
+        int c = Long.compareUnsigned(a.hi0, b.hi0);
+        if (c == 0) {
+            c = Long.compareUnsigned(a.lo0, b.lo0);
+        } // if
+        if (c == 0) {
+            c = Long.compareUnsigned(a.hi1, b.hi1);
+        } // if
+        return c != 0 ? c : Long.compareUnsigned(a.lo1, b.lo1);
+    } // compare
+
+    /**
+     * Return the number of tokens in column {@code col}.
+     *
+     * @param col the column index
+     * @return the column's fill height
+     */
+    private int height(int col) {
+        long column = BitBoard.column(this.lo0 | this.lo1, this.hi0 | this.hi1,
+                col * (this.rows + 1));
+        return Long.bitCount(column & ((1L << this.rows) - 1)); // columns fill bottom-up
+    } // height
+
+    /**
+     * Return whether {@code o} is a position with the same grid size, the same tokens in the
+     * same cells, and the same player to move.
+     *
+     * @param o the object to compare with
+     * @return {@code true} if the positions are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Position p && this.lo0 == p.lo0 && this.hi0 == p.hi0
+                && this.lo1 == p.lo1 && this.hi1 == p.hi1 && this.rows == p.rows
+                && this.cols == p.cols && this.nextPlayer == p.nextPlayer;
+    } // equals
+
+    /**
+     * Return a hash code consistent with {@link #equals}.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        long h = this.lo0 * 0x9E3779B97F4A7C15L + this.hi0;
+        h = h * 0x9E3779B97F4A7C15L + this.lo1;
+        h = h * 0x9E3779B97F4A7C15L + this.hi1;
+        h = h * 31 + (this.rows << 16 | this.cols << 8 | this.nextPlayer);
+        return (int) (h ^ h >>> 32);
+    } // hashCode
+
+    /**
+     * Return the grid drawn with one line per row, top row first: {@code X} for player
+     * {@code 0}, {@code O} for player {@code 1} and {@code .} for an empty cell.
+     *
+     * @return the grid as text
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < this.rows; row++) {
+            for (int col = 0; col < this.cols; col++) {
+                text.append(".XO".charAt(getPlayerAt(row, col) + 1));
+            } // for
+            text.append('\n');
+        } // for
+        return text.append("next: ").append(this.nextPlayer).toString();
+    } // toString
+
+} // Position
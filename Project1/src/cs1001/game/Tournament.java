@@ -0,0 +1,221 @@
+package cs1001.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import cs1302.gameutil.GamePhase;
+import cs1302.gameutil.Token;
+
+/**
+ * A headless self-play runner: it plays many {@link cs1001.game.ConnectFour} games between two
+ * {@link cs1001.game.MovePolicy move policies} through the public game API (no
+ * {@code printGrid}, no input) and reports the results and the throughput. Use it for bulk
+ * regression runs of the engine and for strength tests of the policies.
+ *
+ * <p>
+ * Games are spread over a {@link java.util.concurrent.ForkJoinPool} in contiguous batches, and
+ * each batch keeps its own counts, so workers never contend. The two policies take turns
+ * going first: policy A moves first in even-numbered games and policy B in odd-numbered ones.
+ * Game {@code i} draws its randomness from a generator seeded with {@code seed + i}, so the
+ * same arguments replay the same games on any number of threads, except with an
+ * {@code anytime} policy, whose search depends on the wall clock (use {@code depth} instead;
+ * see {@link cs1001.game.MovePolicy}).
+ *
+ * <pre>
+ * $ java cs1001.game.Tournament 10000 center random 6 7
+ * </pre>
+ */
+public class Tournament {
+
+    /** Number of batches per thread; more than one evens out batches of unequal length. */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * The outcome of a tournament.
+     *
+     * @param games the number of games played
+     * @param winsA the number of games policy A won
+     * @param winsB the number of games policy B won
+     * @param draws the number of drawn games
+     * @param drops the total number of tokens dropped over all games
+     * @param nanos the wall-clock time the tournament took, in nanoseconds
+     */
+    public record Summary(long games, long winsA, long winsB, long draws, long drops,
+            long nanos) {
+
+        /**
+         * Return the throughput.
+         *
+         * @return games played per second
+         */
+        public double gamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1e9 / nanos;
+        } // gamesPerSecond
+
+        /**
+         * Return the average game length.
+         *
+         * @return the average number of tokens dropped per game
+         */
+        public double averageLength() {
+            return games == 0 ? 0 : (double) drops / games;
+        } // averageLength
+
+        /**
+         * Return a one-line report of the results.
+         *
+         * @return the report
+         */
+        @Override
+        public String toString() {
+            return ("%d games in %.3f s (%.0f games/s): A %d (%.1f%%), B %d (%.1f%%), "
+                    + "draws %d (%.1f%%), average length %.1f").formatted(games, nanos / 1e9,
+                            gamesPerSecond(), winsA, percent(winsA), winsB, percent(winsB),
+                            draws, percent(draws), averageLength());
+        } // toString
+
+        /**
+         * Return {@code count} as a percentage of the games played.
+         *
+         * @param count a number of games
+         * @return the percentage
+         */
+        private double percent(long count) {
+            return games == 0 ? 0 : 100.0 * count / games;
+        } // percent
+
+    } // Summary
+
+    /**
+     * Play {@code games}-many games of {@code rows}-by-{@code cols} Connect Four between
+     * policies {@code a} and {@code b} on {@code threads}-many threads.
+     *
+     * @param games the number of games
+     * @param a policy A
+     * @param b policy B
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param threads the number of worker threads
+     * @param seed the seed of the first game
+     * @return the results
+     * @throws NullPointerException if {@code a} or {@code b} is {@code null}
+     * @throws IllegalArgumentException if {@code games < 0}, {@code threads < 1}, or the grid
+     *                                  size is not supported by {@code ConnectFour}
+     */
+    public static Summary run(long games, MovePolicy a, MovePolicy b, int rows, int cols,
+            int threads, long seed) {
+        if (a == null || b == null) {
+            throw new NullPointerException("Null argument(s): Both policies are needed.");
+        } // if
+        if (games < 0 || threads < 1) {
+            throw new IllegalArgumentException(
+                    "Bad argument: Need games >= 0 and at least one thread.");
+        } // if
+        new ConnectFour(rows, cols); // validate the size before starting any thread
+        long start = System.nanoTime();
+        long batches = Math.min(games, (long) threads * BATCHES_PER_THREAD);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (long i = 0; i < batches; i++) {
+            long from = games * i / batches;
+            long to = games * (i + 1) / batches;
+            tasks.add(() -> playBatch(from, to, a, b, rows, cols, seed));
+        } // for
+        long[] totals = new long[4];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<long[]> future : pool.invokeAll(tasks)) {
+                long[] counts = future.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                } // for
+            } // for
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while playing.", ie);
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException("A game failed.", ee.getCause());
+        } finally {
+            pool.shutdown();
+        } // try
+        return new Summary(games, totals[0], totals[1], totals[2], totals[3],
+                System.nanoTime() - start);
+    } // run
+
+    /**
+     * Play games {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @param from the first game number
+     * @param to one past the last game number
+     * @param a policy A
+     * @param b policy B
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @param seed the seed of game {@code 0}
+     * @return A's wins, B's wins, draws and tokens dropped, in that order
+     */
+    private static long[] playBatch(long from, long to, MovePolicy a, MovePolicy b, int rows,
+            int cols, long seed) {
+        long[] counts = new long[4];
+        for (long i = from; i < to; i++) {
+            SplittableRandom random = new SplittableRandom(seed + i);
+            MovePolicy first = i % 2 == 0 ? a : b;
+            MovePolicy second = i % 2 == 0 ? b : a;
+            ConnectFour game = new ConnectFour(rows, cols);
+            game.setPlayerTokens(Token.RED, Token.BLUE);
+            int player = 0;
+            while (game.getPhase() != GamePhase.OVER) {
+                MovePolicy policy = player == 0 ? first : second;
+                game.dropToken(player, policy.chooseColumn(game, player, random));
+                player = 1 - player;
+            } // while
+            if (!game.isLastDropConnectFour()) {
+                counts[2]++;
+            } else if ((1 - player == 0) == (i % 2 == 0)) { // winner is the player who went last
+                counts[0]++;
+            } else {
+                counts[1]++;
+            } // if
+            counts[3] += game.getNumDropped();
+        } // for
+        return counts;
+    } // playBatch
+
+    /**
+     * Run a tournament from the command line and print its summary.
+     *
+     * <pre>
+     * java cs1001.game.Tournament games policyA policyB [rows cols [threads [seed]]]
+     * </pre>
+     *
+     * <p>
+     * Policies are named as in {@link cs1001.game.MovePolicy#parse}. The grid defaults to 6x7,
+     * the thread count to the number of available processors and the seed to {@code 0}.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length == 4 || args.length > 7) {
+            System.out.println("Usage: java cs1001.game.Tournament games policyA policyB "
+                    + "[rows cols [threads [seed]]]");
+            System.out.println(
+                    "Policies: random, center, mcts:<playouts>, anytime:<millis>, depth:<plies>");
+            return;
+        } // if
+        long games = Long.parseLong(args[0]);
+        MovePolicy a = MovePolicy.parse(args[1]);
+        MovePolicy b = MovePolicy.parse(args[2]);
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+        int cols = args.length > 4 ? Integer.parseInt(args[4]) : 7;
+        int threads = args.length > 5 ? Integer.parseInt(args[5])
+                : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 0;
+        System.out.printf("A = %s, B = %s, %dx%d, %d thread(s)\n", args[1], args[2], rows, cols,
+                threads);
+        System.out.println(run(games, a, b, rows, cols, threads, seed));
+    } // main
+
+} // Tournament
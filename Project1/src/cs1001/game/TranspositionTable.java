@@ -0,0 +1,359 @@
+package cs1001.game;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size transposition table for searches over {@link cs1001.game.ConnectFour} positions.
+ * It remembers the result of searching a position, so that a search reaching the same position
+ * again through a different move order can reuse it instead of searching it again.
+ *
+ * <p>
+ * All entries live in one preallocated {@code long[]} sized from a memory budget; nothing is
+ * allocated per entry and the table never grows. Entries are grouped into buckets of two
+ * (two-tier replacement):
+ * <ul>
+ * <li>the first slot keeps the entry with the greatest search depth seen for that bucket, since
+ * deep results are the most expensive to recompute;</li>
+ * <li>the second slot always takes the newest entry that did not go into the first one, so
+ * recent shallow results are still cached.</li>
+ * </ul>
+ *
+ * <p>
+ * Positions are identified by a 128-bit key (see {@link #keyLo} and {@link #keyHi}), which is
+ * stored in full, so a hit is never a different position of the same grid size. The key does not
+ * include the grid size, though, and grids with the same number of rows lay their tokens out
+ * the same way, so one table must only hold positions of one size. The solvers call
+ * {@link #useFor} before each solve, which clears the table when the size changes.
+ *
+ * <p>
+ * One table can be shared by any number of searching threads without locks. Each array element
+ * is read and written atomically (opaque {@link java.lang.invoke.VarHandle} access), and the two
+ * key words are stored XOR-ed with the data word. If two threads write the same slot at once
+ * and a reader sees words from both writes, the XOR no longer gives back its key and the read
+ * is treated as a miss. A race can therefore lose an entry, but never return a wrong one.
+ * Statistics are kept in {@link java.util.concurrent.atomic.LongAdder}s.
+ */
+public class TranspositionTable {
+
+    /** Default memory budget: 16 MiB. */
+    public static final long DEFAULT_BYTES = 16L << 20;
+
+    /** Bound type: the stored value is exact. */
+    static final int EXACT = 1;
+    /** Bound type: the true value is at least the stored value (the search failed high). */
+    static final int LOWER = 2;
+    /** Bound type: the true value is at most the stored value (the search failed low). */
+    static final int UPPER = 3;
+
+    private static final int LONGS_PER_ENTRY = 3; // key low word, key high word, data
+    private static final int LONGS_PER_BUCKET = 2 * LONGS_PER_ENTRY;
+
+    /** Atomic access to single elements of {@link #table}. */
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] table; // buckets of two entries: [depth-preferred, always-replace]
+    private final int bucketMask; // number of buckets - 1 (a power of two)
+    private int rows; // grid size of the entries, or 0 before the first use
+    private int cols;
+
+    private final LongAdder probes = new LongAdder(); // number of lookups
+    private final LongAdder hits = new LongAdder(); // number of lookups that found their key
+    private final LongAdder stores = new LongAdder(); // number of entries written
+    private final LongAdder overwrites = new LongAdder(); // writes that evicted another position
+
+    /**
+     * Constructs an empty table that uses at most {@code budgetBytes} bytes for its entries.
+     * The number of buckets is rounded down to a power of two.
+     *
+     * @param budgetBytes the memory budget, in bytes
+     * @throws IllegalArgumentException if the budget cannot hold even one bucket, or needs a
+     *                                  larger array than Java allows
+     */
+    public TranspositionTable(long budgetBytes) {
+        long buckets = Long.highestOneBit(budgetBytes / (8L * LONGS_PER_BUCKET));
+        if (buckets < 1 || buckets * LONGS_PER_BUCKET > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    "Bad budget: %d bytes is not a usable table size.".formatted(budgetBytes));
+        } // if
+        this.table = new long[(int) buckets * LONGS_PER_BUCKET];
+        this.bucketMask = (int) buckets - 1;
+    } // TranspositionTable
+
+    /**
+     * Constructs an empty table with the {@linkplain #DEFAULT_BYTES default} memory budget.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_BYTES);
+    } // TranspositionTable
+
+    /**
+     * Return the low word of {@code player}'s key for {@code board}. The key is
+     * {@code mine + occupied}: within a column holding {@code h} tokens this sum falls in
+     * {@code [2^h - 1, 2^(h+1) - 2]} and determines which of those tokens are {@code player}'s,
+     * so different positions never share a key. A column's sum never overflows its own bits, so
+     * the only carry is from the low word into the high word (see {@link #keyHi}).
+     *
+     * @param board the position
+     * @param player the player to move
+     * @return the key's low word
+     */
+    static long keyLo(BitBoard board, int player) {
+        return board.lo[player] + (board.lo[0] | board.lo[1]);
+    } // keyLo
+
+    /**
+     * Return the high word of {@code player}'s key for {@code board} (see {@link #keyLo}).
+     *
+     * @param board the position
+     * @param player the player to move
+     * @return the key's high word
+     */
+    static long keyHi(BitBoard board, int player) {
+        long mine = board.lo[player];
+        long carry = Long.compareUnsigned(mine + (board.lo[0] | board.lo[1]), mine) < 0 ? 1 : 0;
+        return board.hi[player] + (board.hi[0] | board.hi[1]) + carry;
+    } // keyHi
+
+    /**
+     * Return the entry stored for a key, or {@code 0} if there is none. Use {@link #value},
+     * {@link #bound}, {@link #depth} and {@link #bestCol} to unpack it.
+     *
+     * @param keyLo the key's low word
+     * @param keyHi the key's high word
+     * @return the packed entry, or {@code 0} on a miss
+     */
+    long probe(long keyLo, long keyHi) {
+        this.probes.increment();
+        int i = bucket(keyLo, keyHi);
+        for (int slot = i; slot < i + LONGS_PER_BUCKET; slot += LONGS_PER_ENTRY) {
+            long data = read(slot + 2);
+            if (data != 0 && matches(slot, data, keyLo, keyHi)) {
+                this.hits.increment();
+                return data;
+            } // if
+        } // for
+        return 0;
+    } // probe
+
+    /**
+     * Store the result of searching a position. The entry replaces the bucket's depth-preferred
+     * slot if it holds the same position or a shallower search; otherwise it goes into the
+     * always-replace slot.
+     *
+     * @param keyLo the key's low word
+     * @param keyHi the key's high word
+     * @param depth the search depth behind the value ({@code 0..255})
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param value the searched value ({@code -32768..32767})
+     * @param bestCol the best column found, or {@code -1} if none
+     */
+    void store(long keyLo, long keyHi, int depth, int bound, int value, int bestCol) {
+        int i = bucket(keyLo, keyHi);
+        long old = read(i + 2);
+        boolean same = old != 0 && matches(i, old, keyLo, keyHi);
+        if (!same && old != 0 && depth(old) > depth) {
+            i += LONGS_PER_ENTRY; // keep the deeper entry; use the always-replace slot
+            old = read(i + 2);
+            same = old != 0 && matches(i, old, keyLo, keyHi);
+        } // if
+        if (old != 0 && !same) {
+            this.overwrites.increment();
+        } // if
+        this.stores.increment();
+        long data = pack(depth, bound, value, bestCol);
+        SLOT.setOpaque(this.table, i, keyLo ^ data);
+        SLOT.setOpaque(this.table, i + 1, keyHi ^ data);
+        SLOT.setOpaque(this.table, i + 2, data);
+    } // store
+
+    /**
+     * Return the element of {@link #table} at {@code index}, read atomically.
+     *
+     * @param index the array index
+     * @return the element
+     */
+    private long read(int index) {
+        return (long) SLOT.getOpaque(this.table, index);
+    } // read
+
+    /**
+     * Return {@code true} if the entry at {@code slot}, whose data word is {@code data}, was
+     * stored for the given key.
+     *
+     * @param slot the index of the entry's first {@code long}
+     * @param data the entry's data word
+     * @param keyLo the key's low word
+     * @param keyHi the key's high word
+     * @return {@code true} if the stored key words, XOR-ed with {@code data}, give the key
+     */
+    private boolean matches(int slot, long data, long keyLo, long keyHi) {
+        return (read(slot) ^ data) == keyLo && (read(slot + 1) ^ data) == keyHi;
+    } // matches
+
+    /**
+     * Pack an entry's data into one non-zero {@code long}.
+     *
+     * @param depth the search depth ({@code 0..255})
+     * @param bound the bound type
+     * @param value the value ({@code -32768..32767})
+     * @param bestCol the best column, or {@code -1}
+     * @return the packed data
+     */
+    private static long pack(int depth, int bound, int value, int bestCol) {
+        return (value & 0xFFFFL) | (long) bound << 16 | (long) depth << 18
+                | (long) (bestCol + 1) << 26;
+    } // pack
+
+    /**
+     * Return the value of a packed entry.
+     *
+     * @param data the entry
+     * @return the stored value
+     */
+    static int value(long data) {
+        return (short) data;
+    } // value
+
+    /**
+     * Return the bound type of a packed entry.
+     *
+     * @param data the entry
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    static int bound(long data) {
+        return (int) (data >>> 16) & 0x3;
+    } // bound
+
+    /**
+     * Return the search depth of a packed entry.
+     *
+     * @param data the entry
+     * @return the stored depth
+     */
+    static int depth(long data) {
+        return (int) (data >>> 18) & 0xFF;
+    } // depth
+
+    /**
+     * Return the best column of a packed entry.
+     *
+     * @param data the entry
+     * @return the stored column, or {@code -1} if none was stored
+     */
+    static int bestCol(long data) {
+        return ((int) (data >>> 26) & 0xF) - 1;
+    } // bestCol
+
+    /**
+     * Return the index of the first {@code long} of a key's bucket.
+     *
+     * @param keyLo the key's low word
+     * @param keyHi the key's high word
+     * @return the bucket's offset into {@link #table}
+     */
+    private int bucket(long keyLo, long keyHi) {
+        long h = keyLo * 0x9E3779B97F4A7C15L ^ keyHi * 0xC2B2AE3D27D4EB4FL;
+        return ((int) (h ^ h >>> 29) & this.bucketMask) * LONGS_PER_BUCKET;
+    } // bucket
+
+    /**
+     * Prepare this table for searches of {@code rows}-by-{@code cols} grids: if it was last used
+     * for another grid size, remove every entry (see {@link #clear}). This must not run while a
+     * search is using the table.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     */
+    void useFor(int rows, int cols) {
+        if (rows != this.rows || cols != this.cols) {
+            if (this.rows != 0) {
+                clear(); // keys of different grid sizes may collide
+            } // if
+            this.rows = rows;
+            this.cols = cols;
+        } // if
+    } // useFor
+
+    /**
+     * Remove every entry and reset the statistics. This must not run while a search is using
+     * the table.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0);
+        this.probes.reset();
+        this.hits.reset();
+        this.stores.reset();
+        this.overwrites.reset();
+    } // clear
+
+    /**
+     * Return the number of entries this table can hold.
+     *
+     * @return the capacity, in entries
+     */
+    public int capacity() {
+        return this.table.length / LONGS_PER_ENTRY;
+    } // capacity
+
+    /**
+     * Return the number of lookups made since construction or the last {@link #clear}.
+     *
+     * @return the number of probes
+     */
+    public long getProbes() {
+        return this.probes.sum();
+    } // getProbes
+
+    /**
+     * Return the number of lookups that found their position.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    } // getHits
+
+    /**
+     * Return the number of entries written.
+     *
+     * @return the number of stores
+     */
+    public long getStores() {
+        return this.stores.sum();
+    } // getStores
+
+    /**
+     * Return the number of writes that evicted a different position.
+     *
+     * @return the number of overwrites
+     */
+    public long getOverwrites() {
+        return this.overwrites.sum();
+    } // getOverwrites
+
+    /**
+     * Return the fraction of lookups that found their position.
+     *
+     * @return the hit rate, between {@code 0} and {@code 1}
+     */
+    public double getHitRate() {
+        long probed = getProbes();
+        return probed == 0 ? 0 : (double) getHits() / probed;
+    } // getHitRate
+
+    /**
+     * Return a one-line summary of the table's size and statistics.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return ("TranspositionTable[capacity=%d, probes=%d, hits=%d (%.1f%%), stores=%d, "
+                + "overwrites=%d]").formatted(capacity(), getProbes(), getHits(),
+                        100 * getHitRate(), getStores(), getOverwrites());
+    } // toString
+
+} // TranspositionTable
@@ -0,0 +1,200 @@
+package cs1001.game;
+
+import java.util.Arrays;
+
+/**
+ * {@code WinTable} lists, for every cell of a grid, each four-cell window that passes through
+ * it, as {@link cs1001.game.BitBoard} masks. A win check for the last drop then only tests the
+ * (at most 16) windows of that one cell: four directions with up to four placements each. The
+ * test is two {@code AND}s and two compares per window, with no allocation, no recursion and no
+ * bounds checks against the grid edges; windows that would cross an edge are simply never put
+ * into the table.
+ *
+ * <p>
+ * Every window also has a grid-wide number, shared by the entries of its four cells, and its
+ * four cells are listed in {@link #windowCells}, so that code keeping per-window counts (see
+ * {@link cs1001.game.Evaluation}) can update them from the cell of a drop.
+ *
+ * <p>
+ * Tables are immutable and built once for each grid size that
+ * {@link cs1001.game.ConnectFour} supports, so every game of the same size shares one table.
+ */
+final class WinTable {
+
+    static final int MIN_ROWS = 6; // smallest supported number of rows
+    static final int MAX_ROWS = 9; // largest supported number of rows
+    static final int MIN_COLS = 7; // smallest supported number of columns
+    static final int MAX_COLS = 9; // largest supported number of columns
+
+    /** Row/column steps of the four line directions: vertical, horizontal, both diagonals. */
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    /** One shared table per supported size, indexed by {@link #index}. */
+    private static final WinTable[] TABLES = new WinTable[index(MAX_ROWS, MAX_COLS) + 1];
+
+    static {
+        for (int rows = MIN_ROWS; rows <= MAX_ROWS; rows++) {
+            for (int cols = MIN_COLS; cols <= MAX_COLS; cols++) {
+                TABLES[index(rows, cols)] = new WinTable(rows, cols);
+            } // for
+        } // for
+    } // static
+
+    private final int rows; // number of grid rows
+    private final int[] start; // windows of cell c are at [start[c], start[c + 1])
+    private final long[] windowLo; // low word of each window mask
+    private final long[] windowHi; // high word of each window mask
+    private final int[] windowId; // grid-wide number of each window (shared by its 4 cells)
+    final int windows; // number of distinct windows on the grid
+    final int[] windowCells; // the 4 cells of window w are at [4 * w, 4 * w + 4)
+
+    /**
+     * Builds the table for a {@code rows}-by-{@code cols} grid.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     */
+    private WinTable(int rows, int cols) {
+        int cells = rows * cols;
+        int stride = rows + 1;
+        this.rows = rows;
+        this.start = new int[cells + 1];
+        long[] lo = new long[cells * 16];
+        long[] hi = new long[cells * 16];
+        int[] ids = new int[cells * 16];
+        int[][] idOf = new int[DIRECTIONS.length][cells]; // by direction and first cell, 1-based
+        int[] members = new int[cells * 16];
+        int windows = 0;
+        int n = 0;
+        for (int col = 0; col < cols; col++) {
+            for (int h = 0; h < rows; h++) {
+                this.start[col * rows + h] = n;
+                for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+                    int[] d = DIRECTIONS[dir];
+                    // slide the window so that (h, col) is its k-th cell
+                    for (int k = 0; k < 4; k++) {
+                        int h0 = h - k * d[0];
+                        int c0 = col - k * d[1];
+                        int h3 = h0 + 3 * d[0];
+                        int c3 = c0 + 3 * d[1];
+                        if (h0 < 0 || h3 >= rows || Math.min(c0, c3) < 0
+                                || Math.max(c0, c3) >= cols) {
+                            continue; // window would leave the grid
+                        } // if
+                        int first = c0 * rows + h0;
+                        if (idOf[dir][first] == 0) { // first time this window is seen
+                            idOf[dir][first] = ++windows;
+                            for (int i = 0; i < 4; i++) {
+                                members[4 * (windows - 1) + i] =
+                                        (c0 + i * d[1]) * rows + h0 + i * d[0];
+                            } // for
+                        } // if
+                        ids[n] = idOf[dir][first] - 1;
+                        for (int i = 0; i < 4; i++) {
+                            int bit = (c0 + i * d[1]) * stride + h0 + i * d[0];
+                            if (bit < 64) {
+                                lo[n] |= 1L << bit;
+                            } else {
+                                hi[n] |= 1L << bit;
+                            } // if
+                        } // for
+                        n++;
+                    } // for
+                } // for
+            } // for
+        } // for
+        this.start[cells] = n;
+        this.windowLo = Arrays.copyOf(lo, n);
+        this.windowHi = Arrays.copyOf(hi, n);
+        this.windowId = Arrays.copyOf(ids, n);
+        this.windows = windows;
+        this.windowCells = Arrays.copyOf(members, 4 * windows);
+    } // WinTable
+
+    /**
+     * Return the shared table for a {@code rows}-by-{@code cols} grid.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @return the table for that size
+     * @throws IllegalArgumentException if the size is not supported
+     */
+    static WinTable of(int rows, int cols) {
+        if (rows < MIN_ROWS || rows > MAX_ROWS || cols < MIN_COLS || cols > MAX_COLS) {
+            throw new IllegalArgumentException(
+                    "Unsupported Values: no win table for a %dx%d grid.".formatted(rows, cols));
+        } // if
+        return TABLES[index(rows, cols)];
+    } // of
+
+    /**
+     * Return {@code true} if the mask {@code (lo, hi)} fills any four-cell window through the
+     * cell at height {@code h} (counted from the bottom) in column {@code col}.
+     *
+     * @param lo the low word of one player's mask
+     * @param hi the high word of one player's mask
+     * @param h the cell's height
+     * @param col the cell's column index
+     * @return {@code true} if a connect four passes through that cell
+     */
+    boolean isWinAt(long lo, long hi, int h, int col) {
+        int cell = col * this.rows + h;
+        for (int i = this.start[cell], end = this.start[cell + 1]; i < end; i++) {
+            long wLo = this.windowLo[i];
+            long wHi = this.windowHi[i];
+            if ((lo & wLo) == wLo && (hi & wHi) == wHi) {
+                return true;
+            } // if
+        } // for
+        return false;
+    } // isWinAt
+
+    /**
+     * Return the index of the first window through the cell at height {@code h} (counted from
+     * the bottom) in column {@code col}. The cell's windows have the per-cell indices
+     * {@code first(h, col)} up to, but not including, {@link #end end(h, col)}.
+     *
+     * @param h the cell's height
+     * @param col the cell's column index
+     * @return the cell's first per-cell window index
+     */
+    int first(int h, int col) {
+        return this.start[col * this.rows + h];
+    } // first
+
+    /**
+     * Return the index just past the last window through the cell at height {@code h} in
+     * column {@code col} (see {@link #first}).
+     *
+     * @param h the cell's height
+     * @param col the cell's column index
+     * @return the end of the cell's per-cell window indices
+     */
+    int end(int h, int col) {
+        return this.start[col * this.rows + h + 1];
+    } // end
+
+    /**
+     * Return the grid-wide number ({@code 0 <= id < windows}) of the window at per-cell index
+     * {@code i}. A window has one per-cell entry for each of its four cells, and all four
+     * share this number.
+     *
+     * @param i a per-cell window index (see {@link #first})
+     * @return the window's number
+     */
+    int windowId(int i) {
+        return this.windowId[i];
+    } // windowId
+
+    /**
+     * Return the position of the {@code rows}-by-{@code cols} table in {@link #TABLES}.
+     *
+     * @param rows the number of grid rows
+     * @param cols the number of grid columns
+     * @return the table index
+     */
+    private static int index(int rows, int cols) {
+        return (rows - MIN_ROWS) * (MAX_COLS - MIN_COLS + 1) + (cols - MIN_COLS);
+    } // index
+
+} // WinTable